@@ -3,14 +3,91 @@ import java.awt.*;
 import java.io.*;
 import java.net.*;
 import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
 import org.json.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
 import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.awt.event.MouseAdapter;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.event.MouseEvent;
+import javax.imageio.ImageIO;
 import javax.swing.border.AbstractBorder;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+import javax.swing.table.AbstractTableModel;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
 
 public class DJA extends JFrame {
     private static final String MARKETPLACE_URL = "https://raw.githubusercontent.com/DRAGEno01/DRAGE-Java-Apps/main/code/apps.json";
-    private JPanel installedAppsPanel;
-    private JPanel marketplacePanel;
+    private static final String CACHE_DIR = "cache";
+    private static final String APPS_DIR = "installed_apps";
+    private static final Path SESSION_FILE = Paths.get(CACHE_DIR, "session.dat");
+    private static final Path STARTUP_LOG = Paths.get(CACHE_DIR, "startup.log");
+    // Built by the launcher script; restarts after a self-update reuse it
+    private static final Path DASHBOARD_ARCHIVE = Paths.get(CACHE_DIR, "dja.jsa");
+    private static final int CONNECT_TIMEOUT_MS = 10000;
+    private static final int READ_TIMEOUT_MS = 30000;
+    private static final int MARKETPLACE_CARD_HEIGHT = 270;
+    private static final int INSTALLED_CARD_HEIGHT = 200;
+    private static final int MIN_CARD_WIDTH = 400;
+    private JScrollPane installedScroll;
+    private JScrollPane marketplaceScroll;
+    // Set once the marketplace has something to show; the list itself is only built when its tab opens
+    private boolean marketplaceReady;
+    private boolean firstPaint;
+    private JList<InstalledApp> installedAppsList;
+    private JList<AppEntry> marketplaceList;
+    private final CardListModel<InstalledApp> installedAppsModel = new CardListModel<>();
+    private final CardListModel<AppEntry> marketplaceModel = new CardListModel<>();
+    private static final DownloadEngine downloads = new DownloadEngine();
+    private static final CompilerService compiler = new CompilerService();
+    private final CatalogRepository catalog = new CatalogRepository(CatalogRepository.configuredUrl(),
+        Paths.get(CACHE_DIR));
+    private final InstalledIndex installedIndex = new InstalledIndex(Paths.get(APPS_DIR));
+    private final BlobStore store = BlobStore.fromSystemProperties(Paths.get(APPS_DIR));
+    private final AppInstaller installer = new AppInstaller(downloads, Paths.get(APPS_DIR), installedIndex, store);
+    private final CdsArchives cds = new CdsArchives(Paths.get(APPS_DIR), installedIndex);
+    private final WarmPool pool = WarmPool.fromSystemProperties();
+    private final JarWatcher installedWatcher = new JarWatcher(Paths.get(APPS_DIR), this::onInstalledAppsChanged);
+    private final SearchIndex searchIndex = new SearchIndex();
+    // Queries run here, one at a time; a query superseded while queued is skipped
+    private final ExecutorService searchExecutor = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "marketplace-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile String marketplaceQuery = "";
+    private JLabel updateSummaryLabel;
+    private JButton updateAllButton;
+    private boolean updatingAll;
+    private SwingWorker<CatalogSnapshot, AppEntry> marketplaceWorker;
+    private static final int ICON_SIZE = 48;
+    private final IconCache icons = new IconCache(Paths.get(CACHE_DIR, "icons"), 8 * 1024 * 1024, 4);
+    private final Runnable iconLoaded = this::repaintCardLists;
     private Color primaryColor = new Color(63, 81, 181);    // Material Indigo
     private Color accentColor = new Color(92, 107, 192);    // Lighter Indigo
     private Color buttonColor = new Color(48, 63, 159);     // Darker Indigo for buttons
@@ -35,6 +112,7 @@ public class DJA extends JFrame {
         } catch (Exception e) {
             e.printStackTrace();
         }
+        StartupTimer.mark("lookAndFeel");
 
         // Main layout
         setLayout(new BorderLayout(0, 0));
@@ -49,29 +127,90 @@ public class DJA extends JFrame {
         tabbedPane.setFont(headerFont);
         tabbedPane.setBackground(Color.WHITE);
         
-        // Installed Apps Panel
-        installedAppsPanel = new JPanel(new GridBagLayout());
-        installedAppsPanel.setBackground(Color.WHITE);
-        JScrollPane installedScroll = new JScrollPane(installedAppsPanel);
-        installedScroll.setBorder(null);
-        installedScroll.getViewport().setBackground(Color.WHITE);
-        tabbedPane.addTab("Installed Apps", installedScroll);
-
-        // Marketplace Panel
-        marketplacePanel = new JPanel(new GridBagLayout());
-        marketplacePanel.setBackground(Color.WHITE);
-        JScrollPane marketplaceScroll = new JScrollPane(marketplacePanel);
-        marketplaceScroll.setBorder(null);
-        marketplaceScroll.getViewport().setBackground(Color.WHITE);
-        tabbedPane.addTab("Marketplace", marketplaceScroll);
+        // Installed Apps list; only the visible cards are ever painted
+        installedAppsList = createCardList(installedAppsModel, new InstalledCardRenderer(), INSTALLED_CARD_HEIGHT,
+            this::onInstalledAction);
+        installedScroll = createCardScroll(installedAppsList);
+        JPanel installedTab = new JPanel(new BorderLayout());
+        installedTab.add(createUpdateBar(), BorderLayout.NORTH);
+        installedTab.add(installedScroll, BorderLayout.CENTER);
+        tabbedPane.addTab("Installed Apps", installedTab);
+
+        // Marketplace list; its renderer and list are built the first time the tab is selected
+        marketplaceScroll = createCardScroll(null);
+        JPanel marketplaceTab = new JPanel(new BorderLayout());
+        marketplaceTab.add(createSearchBar(), BorderLayout.NORTH);
+        marketplaceTab.add(marketplaceScroll, BorderLayout.CENTER);
+        tabbedPane.addTab("Marketplace", marketplaceTab);
+        tabbedPane.addChangeListener(e -> {
+            if (tabbedPane.getSelectedComponent() == marketplaceTab) {
+                ensureMarketplaceList();
+            }
+        });
 
         add(tabbedPane, BorderLayout.CENTER);
+        addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosing(java.awt.event.WindowEvent e) {
+                saveSession();
+            }
+        });
+        // Ctrl+Shift+D opens the timings for a "feels slow" report
+        getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(
+            java.awt.event.KeyEvent.VK_D, java.awt.event.InputEvent.CTRL_DOWN_MASK
+                | java.awt.event.InputEvent.SHIFT_DOWN_MASK), "diagnostics");
+        getRootPane().getActionMap().put("diagnostics", new AbstractAction() {
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                new DiagnosticsDialog().setVisible(true);
+            }
+        });
+        StartupTimer.mark("frame");
 
-        // Load apps
+        // Paint last session's rows straight away; the real loads below replace them off the EDT
+        installedAppsModel.setAll(SessionSnapshot.read(SESSION_FILE));
+        StartupTimer.mark("session");
+
+        setVisible(true);
+        StartupTimer.mark("visible");
+
+        // Load apps; after the first scan the watcher keeps the Installed Apps tab current
         loadMarketplaceApps();
         loadInstalledApps();
+        installedWatcher.start();
+        try {
+            pool.start();
+        } catch (IOException e) {
+            System.err.println("Standby JVM pool disabled: " + e.getMessage());
+        }
+    }
 
-        setVisible(true);
+    @Override
+    public void paint(Graphics g) {
+        super.paint(g);
+        if (!firstPaint) {
+            firstPaint = true;
+            StartupTimer.mark("firstPaint");
+        }
+    }
+
+    private void ensureMarketplaceList() {
+        if (marketplaceList != null) {
+            return;
+        }
+        marketplaceList = createCardList(marketplaceModel, new MarketplaceCardRenderer(), MARKETPLACE_CARD_HEIGHT,
+            this::installApp);
+        if (marketplaceReady) {
+            showList(marketplaceScroll, marketplaceList);
+        }
+    }
+
+    private void saveSession() {
+        try {
+            SessionSnapshot.write(SESSION_FILE, installedAppsModel.items());
+        } catch (IOException e) {
+            System.err.println("Could not save session: " + e.getMessage());
+        }
     }
 
     private JPanel createHeader() {
@@ -98,7 +237,10 @@ public class DJA extends JFrame {
         // Wider refresh button
         JButton refreshButton = new JGradientButton("⟳ Refresh");
         refreshButton.setPreferredSize(new Dimension(150, 45));  // Set fixed width
-        refreshButton.addActionListener(e -> loadMarketplaceApps());
+        refreshButton.addActionListener(e -> {
+            loadMarketplaceApps();
+            loadInstalledApps();
+        });
         
         header.add(titlePanel, BorderLayout.WEST);
         header.add(refreshButton, BorderLayout.EAST);
@@ -106,6 +248,177 @@ public class DJA extends JFrame {
         return header;
     }
 
+    // How many installed apps have updates, and a button that updates all of them in one job
+    private JPanel createUpdateBar() {
+        JPanel bar = new JPanel(new BorderLayout(10, 0));
+        bar.setBackground(Color.WHITE);
+        bar.setBorder(BorderFactory.createEmptyBorder(10, 15, 10, 15));
+
+        updateSummaryLabel = new JLabel();
+        updateSummaryLabel.setFont(normalFont);
+        updateSummaryLabel.setForeground(new Color(100, 100, 100));
+
+        updateAllButton = new JGradientButton("Update all");
+        updateAllButton.setPreferredSize(new Dimension(150, 36));
+        updateAllButton.addActionListener(e -> updateAllApps());
+
+        installedAppsModel.addListDataListener(new ListDataListener() {
+            @Override
+            public void intervalAdded(ListDataEvent e) {
+                refreshUpdateBar();
+            }
+
+            @Override
+            public void intervalRemoved(ListDataEvent e) {
+                refreshUpdateBar();
+            }
+
+            @Override
+            public void contentsChanged(ListDataEvent e) {
+                refreshUpdateBar();
+            }
+        });
+        refreshUpdateBar();
+
+        bar.add(updateSummaryLabel, BorderLayout.CENTER);
+        bar.add(updateAllButton, BorderLayout.EAST);
+        return bar;
+    }
+
+    private void refreshUpdateBar() {
+        int updates = 0;
+        for (InstalledApp app : installedAppsModel.items()) {
+            if (app.hasUpdate()) {
+                updates++;
+            }
+        }
+        updateSummaryLabel.setText(updates == 0 ? "All apps are up to date"
+            : updates == 1 ? "1 update available" : updates + " updates available");
+        updateAllButton.setVisible(updates > 0);
+        updateAllButton.setEnabled(!updatingAll);
+    }
+
+    private JPanel createSearchBar() {
+        JPanel bar = new JPanel(new BorderLayout(10, 0));
+        bar.setBackground(Color.WHITE);
+        bar.setBorder(BorderFactory.createEmptyBorder(10, 15, 10, 15));
+
+        JLabel label = new JLabel("Search");
+        label.setFont(normalFont);
+        label.setForeground(new Color(100, 100, 100));
+
+        JTextField field = new JTextField();
+        field.setFont(normalFont);
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                searchMarketplace(field.getText());
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                searchMarketplace(field.getText());
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                searchMarketplace(field.getText());
+            }
+        });
+
+        bar.add(label, BorderLayout.WEST);
+        bar.add(field, BorderLayout.CENTER);
+        return bar;
+    }
+
+    private void searchMarketplace(String query) {
+        marketplaceQuery = query.trim();
+        runMarketplaceSearch();
+    }
+
+    private boolean isMarketplaceFiltered() {
+        return !marketplaceQuery.isEmpty();
+    }
+
+    // Filters off the EDT; only the result list of the newest query is handed to the model
+    private void runMarketplaceSearch() {
+        String query = marketplaceQuery;
+        searchExecutor.execute(() -> {
+            if (!query.equals(marketplaceQuery)) {
+                return;
+            }
+            List<AppEntry> results = searchIndex.search(query, true);
+            SwingUtilities.invokeLater(() -> {
+                if (query.equals(marketplaceQuery)) {
+                    marketplaceModel.setAll(results);
+                }
+            });
+        });
+    }
+
+    // Builds a virtualized card list: one renderer is stamped for each visible row and
+    // mouse events are routed to the stamped action button of the row under the pointer
+    private <T> JList<T> createCardList(CardListModel<T> model, CardRenderer<T> renderer, int cardHeight,
+                                        Consumer<T> action) {
+        JList<T> list = new JList<>(model);
+        list.setCellRenderer(renderer);
+        list.setFixedCellHeight(cardHeight);
+        list.setFixedCellWidth(MIN_CARD_WIDTH);
+        list.setBackground(Color.WHITE);
+        list.setSelectionModel(new DefaultListSelectionModel() {
+            @Override
+            public void setSelectionInterval(int index0, int index1) {
+                // Cards are not selectable
+            }
+        });
+        CardMouseHandler<T> handler = new CardMouseHandler<>(list, renderer, action);
+        list.addMouseListener(handler);
+        list.addMouseMotionListener(handler);
+        return list;
+    }
+
+    // A null list leaves the viewport empty until the list is built
+    private JScrollPane createCardScroll(JList<?> list) {
+        JScrollPane scroll = new JScrollPane(list);
+        scroll.setBorder(null);
+        scroll.getViewport().setBackground(Color.WHITE);
+        scroll.getVerticalScrollBar().setUnitIncrement(24);
+        return scroll;
+    }
+
+    // Icon for a card: the cached scaled image, or a placeholder while it loads. Renderers
+    // only run for visible rows, so only on-screen icons are ever requested.
+    private Icon iconFor(String url) {
+        BufferedImage image = icons.get(url, ICON_SIZE, iconLoaded);
+        return image != null ? new ImageViewIcon(image) : IconPlaceholder.INSTANCE;
+    }
+
+    private void repaintCardLists() {
+        if (marketplaceList != null) {
+            marketplaceList.repaint();
+        }
+        installedAppsList.repaint();
+    }
+
+    private void showLoading(JScrollPane scroll, String text) {
+        if (scroll == marketplaceScroll) {
+            marketplaceReady = false;
+        }
+        JPanel loadingPanel = new JPanel(new GridBagLayout());
+        loadingPanel.setBackground(Color.WHITE);
+        loadingPanel.add(createLoadingLabel(text));
+        scroll.setViewportView(loadingPanel);
+    }
+
+    private void showList(JScrollPane scroll, JList<?> list) {
+        if (scroll == marketplaceScroll) {
+            marketplaceReady = true;
+        }
+        if (list != null && scroll.getViewport().getView() != list) {
+            scroll.setViewportView(list);
+        }
+    }
+
     private JButton createStyledButton(String text) {
         JButton button = new JButton(text);
         button.setFont(normalFont);
@@ -121,308 +434,387 @@ public class DJA extends JFrame {
     }
 
     private void loadMarketplaceApps() {
-        marketplacePanel.removeAll();
-        
-        try {
-            URL url = new URL(MARKETPLACE_URL);
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream()))) {
-                StringBuilder jsonContent = new StringBuilder();
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    jsonContent.append(line);
-                }
-                
-                JSONObject json = new JSONObject(jsonContent.toString());
-                JSONArray apps = json.getJSONArray("apps");
-                
-                for (int i = 0; i < apps.length(); i++) {
-                    JSONObject app = apps.getJSONObject(i);
-                    addAppToMarketplace(app);
-                }
-            }
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, 
-                "Error loading marketplace: " + e.getMessage(),
-                "Error",
-                JOptionPane.ERROR_MESSAGE);
+        // Cancel any load still in flight so a stale result can't overwrite this one
+        if (marketplaceWorker != null) {
+            marketplaceWorker.cancel(true);
         }
-        
-        marketplacePanel.revalidate();
-        marketplacePanel.repaint();
-    }
 
-    private void addAppToMarketplace(JSONObject app) {
-        JPanel appPanel = new JPanel();
-        appPanel.setLayout(new BorderLayout(20, 15));
-        appPanel.setBackground(cardColor);
-        
-        // Enhanced shadow and rounded corners
-        appPanel.setBorder(BorderFactory.createCompoundBorder(
-            new ShadowBorder(10, 0.2f),
-            BorderFactory.createEmptyBorder(25, 25, 25, 25)
-        ));
+        // The first load renders the cached snapshot and then revalidates against the server off
+        // the EDT, publishing cards in batches as they are parsed. Once cards are showing, a reload
+        // leaves them alone and reconciles them with the new snapshot when it is complete.
+        boolean stream = marketplaceModel.getSize() == 0;
+        if (stream) {
+            showLoading(marketplaceScroll, "Loading marketplace...");
+        }
 
-        // App header
-        JPanel headerPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 15, 0));
-        headerPanel.setBackground(cardColor);
-        
-        String cleanName = app.getString("name").replaceAll("\\s+", " ").trim();
-        JLabel nameLabel = new JLabel(cleanName);
-        nameLabel.setFont(headerFont);
-        nameLabel.setForeground(primaryColor);
-        
-        headerPanel.add(nameLabel);
-
-        // Description panel
-        JTextArea descLabel = new JTextArea(app.getString("description").replaceAll("\\[|\\]|\\s+", " ").trim());
-        descLabel.setFont(normalFont);
-        descLabel.setLineWrap(true);
-        descLabel.setWrapStyleWord(true);
-        descLabel.setEditable(false);
-        descLabel.setBackground(cardColor);
-        descLabel.setBorder(BorderFactory.createEmptyBorder(15, 0, 15, 0));
-        descLabel.setForeground(textColor);
-
-        // Details panel
-        JPanel detailsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 20, 10));
-        detailsPanel.setBackground(cardColor);
-        
-        JLabel versionLabel = new JLabel("Version " + app.getString("version").trim());
-        versionLabel.setFont(normalFont);
-        versionLabel.setForeground(new Color(100, 100, 100));
-        
-        JLabel authorLabel = new JLabel("By " + app.getString("author").trim());
-        authorLabel.setFont(normalFont);
-        authorLabel.setForeground(new Color(100, 100, 100));
-        
-        detailsPanel.add(versionLabel);
-        detailsPanel.add(authorLabel);
+        SwingWorker<CatalogSnapshot, AppEntry> worker = new SwingWorker<>() {
+            private final long started = System.nanoTime();
+            private boolean cleared = !stream;
+            private boolean streaming = stream;
 
-        // Content Panel
-        JPanel contentPanel = new JPanel();
-        contentPanel.setLayout(new BoxLayout(contentPanel, BoxLayout.Y_AXIS));
-        contentPanel.setBackground(cardColor);
-        contentPanel.add(headerPanel);
-        contentPanel.add(descLabel);
-        contentPanel.add(detailsPanel);
+            @Override
+            protected CatalogSnapshot doInBackground() throws Exception {
+                // Entries stream straight from the parser into the card batches
+                Consumer<AppEntry> publisher = app -> {
+                    if (isCancelled()) {
+                        throw new CancellationException();
+                    }
+                    if (stream) {
+                        publish(app);
+                    }
+                };
+                CatalogSnapshot cached = catalog.current();
+                if (cached != null) {
+                    cached.apps.forEach(publisher);
+                } else {
+                    Metrics.Span span = Metrics.start("catalog.cache");
+                    try {
+                        cached = catalog.loadCached(publisher);
+                    } finally {
+                        span.end();
+                    }
+                }
+                if (cached != null) {
+                    searchIndex.update(cached.apps);
+                }
+                CatalogSnapshot latest = catalog.refresh(publisher);
+                searchIndex.update(latest.apps);
+                return latest;
+            }
+
+            @Override
+            protected void process(List<AppEntry> batch) {
+                if (isStale() || !streaming) {
+                    return;
+                }
+                clearLoadingState();
+                // A filtered view is recomputed from the index once the load completes
+                if (isMarketplaceFiltered()) {
+                    return;
+                }
+                List<AppEntry> added = new ArrayList<>(batch.size());
+                for (AppEntry app : batch) {
+                    if (app != AppEntry.RESET) {
+                        added.add(app);
+                    } else if (marketplaceModel.getSize() > 0 || !added.isEmpty()) {
+                        // The server has a newer catalog than the cached one on screen; keep that
+                        // up until the new one is parsed and reconcile then
+                        streaming = false;
+                        break;
+                    }
+                }
+                marketplaceModel.addAll(added);
+            }
 
-        // Install button
-        JButton installButton = new JGradientButton("INSTALL");
-        installButton.setFont(new Font("Segoe UI", Font.BOLD, 14));
-        installButton.addActionListener(e -> installApp(app));
+            @Override
+            protected void done() {
+                if (isStale()) {
+                    return;
+                }
+                clearLoadingState();
+                CatalogSnapshot snapshot = null;
+                try {
+                    snapshot = get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    snapshot = catalog.current();
+                    if (snapshot == null) {
+                        JOptionPane.showMessageDialog(DJA.this,
+                            "Error loading marketplace: " + cause.getMessage(),
+                            "Error",
+                            JOptionPane.ERROR_MESSAGE);
+                    } else {
+                        // Keep showing the cached catalog when the server is unreachable or a
+                        // streamed update fails part way through
+                        cause.printStackTrace();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                Metrics.Span span = Metrics.start("marketplace.render");
+                try {
+                    if (isMarketplaceFiltered()) {
+                        runMarketplaceSearch();
+                    } else if (snapshot != null) {
+                        // Usually a no-op: streamed cards already match, and an unchanged catalog
+                        // comes back as the same snapshot
+                        marketplaceModel.reconcile(snapshot.apps, app -> app.name);
+                    }
+                    applyOnlineVersions();
+                } finally {
+                    span.end();
+                }
+                saveSession();
+                Metrics.record("marketplace.load", System.nanoTime() - started);
+                StartupTimer.loadFinished("catalog", STARTUP_LOG);
+            }
 
-        appPanel.add(contentPanel, BorderLayout.CENTER);
-        appPanel.add(installButton, BorderLayout.SOUTH);
+            private boolean isStale() {
+                return isCancelled() || marketplaceWorker != this;
+            }
 
-        GridBagConstraints gbc = new GridBagConstraints();
-        gbc.gridx = GridBagConstraints.RELATIVE;
-        gbc.gridy = GridBagConstraints.RELATIVE;
-        gbc.fill = GridBagConstraints.HORIZONTAL;
-        gbc.weightx = 1.0;
-        gbc.insets = new Insets(15, 15, 15, 15);
+            private void clearLoadingState() {
+                if (!cleared) {
+                    if (!isMarketplaceFiltered()) {
+                        marketplaceModel.clear();
+                    }
+                    showList(marketplaceScroll, marketplaceList);
+                    cleared = true;
+                }
+            }
+        };
+        marketplaceWorker = worker;
+        worker.execute();
+    }
 
-        marketplacePanel.add(appPanel, gbc);
+    private JLabel createLoadingLabel(String text) {
+        JLabel loadingLabel = new JLabel(text);
+        loadingLabel.setFont(normalFont);
+        loadingLabel.setForeground(new Color(100, 100, 100));
+        return loadingLabel;
     }
 
+    // Full rescan of installed_apps, off the EDT; runs at startup, on Refresh, and when the watcher lost events
     private void loadInstalledApps() {
-        installedAppsPanel.removeAll();
-        File appsDir = new File("installed_apps");
-        
-        // Get online versions first
-        Map<String, String> onlineVersions = new HashMap<>();
-        try {
-            URL url = new URL(MARKETPLACE_URL);
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream()))) {
-                StringBuilder jsonContent = new StringBuilder();
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    jsonContent.append(line);
+        new SwingWorker<List<InstalledIndex.Record>, Void>() {
+            private final long started = System.nanoTime();
+
+            @Override
+            protected List<InstalledIndex.Record> doInBackground() throws IOException {
+                Metrics.Span span = Metrics.start("installed.scan");
+                try {
+                    return installedIndex.reconcile();
+                } finally {
+                    span.end();
                 }
-                
-                JSONObject json = new JSONObject(jsonContent.toString());
-                JSONArray apps = json.getJSONArray("apps");
-                for (int i = 0; i < apps.length(); i++) {
-                    JSONObject app = apps.getJSONObject(i);
-                    onlineVersions.put(
-                        app.getString("name").replaceAll("\\s+", ""),
-                        app.getString("version")
-                    );
+            }
+
+            @Override
+            protected void done() {
+                List<InstalledIndex.Record> records;
+                try {
+                    records = get();
+                } catch (ExecutionException e) {
+                    e.getCause().printStackTrace();
+                    return;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+
+                Metrics.Span span = Metrics.start("installed.render");
+                try {
+                    // Online versions and icons come from the shared catalog snapshot; no extra fetch
+                    Map<String, AppEntry> onlineApps = onlineApps();
+                    List<InstalledApp> apps = new ArrayList<>(records.size());
+                    for (InstalledIndex.Record record : records) {
+                        apps.add(installedApp(record, onlineApps));
+                    }
+                    // Usually identical to what the session snapshot already painted
+                    installedAppsModel.reconcile(apps, app -> app.name);
+                } finally {
+                    span.end();
                 }
+                Metrics.record("installed.load", System.nanoTime() - started);
+                StartupTimer.loadFinished("installed", STARTUP_LOG);
             }
-        } catch (Exception e) {
+        }.execute();
+    }
+
+    // Called on the watcher thread: index work stays off the EDT and only the affected cards change on it
+    private void onInstalledAppsChanged(Set<String> names) {
+        if (names == null) {
+            SwingUtilities.invokeLater(this::loadInstalledApps);
+            return;
+        }
+        try {
+            installedIndex.refresh(names);
+            SwingUtilities.invokeLater(() -> applyInstalledChanges(names));
+        } catch (IOException e) {
             e.printStackTrace();
         }
-        
-        if (appsDir.exists() && appsDir.isDirectory()) {
-            File[] files = appsDir.listFiles((dir, name) -> name.endsWith(".jar"));
-            if (files != null) {
-                for (File file : files) {
-                    String appName = file.getName().replace(".jar", "");
-                    String onlineVersion = onlineVersions.get(appName);
-                    String localVersion = getLocalVersion(file);
-                    
-                    addInstalledApp(file, onlineVersion, localVersion);
+    }
+
+    // Reads each record when applied rather than when queued, so a late batch can't undo a newer install
+    private void applyInstalledChanges(Collection<String> names) {
+        Map<String, AppEntry> onlineApps = onlineApps();
+        for (String name : names) {
+            InstalledIndex.Record record = installedIndex.get(name);
+            int row = installedRow(name);
+            if (record == null) {
+                if (row >= 0) {
+                    installedAppsModel.remove(row);
                 }
+            } else if (row >= 0) {
+                installedAppsModel.set(row, installedApp(record, onlineApps));
+            } else {
+                installedAppsModel.insert(-row - 1, installedApp(record, onlineApps));
             }
         }
-        
-        installedAppsPanel.revalidate();
-        installedAppsPanel.repaint();
     }
 
-    private String getLocalVersion(File jarFile) {
-        // Read version from jar manifest or a version file
-        try {
-            File versionFile = new File("installed_apps/" + jarFile.getName().replace(".jar", ".version"));
-            if (versionFile.exists()) {
-                return Files.readString(versionFile.toPath());
+    // A new catalog only changes the online side of each card, so rows are updated in place
+    private void applyOnlineVersions() {
+        Map<String, AppEntry> onlineApps = onlineApps();
+        for (int row = 0; row < installedAppsModel.getSize(); row++) {
+            InstalledApp app = installedAppsModel.getElementAt(row);
+            AppEntry online = onlineApps.get(app.name);
+            String onlineVersion = online != null ? online.version : null;
+            String iconUrl = online != null ? online.icon : "";
+            if (!Objects.equals(onlineVersion, app.onlineVersion) || !iconUrl.equals(app.iconUrl)) {
+                installedAppsModel.set(row, new InstalledApp(app.jarFile, app.name, app.localVersion, onlineVersion,
+                    iconUrl));
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
-        return "1.0"; // Default version if not found
     }
 
-    private void addInstalledApp(File appFile, String onlineVersion, String localVersion) {
-        JPanel appPanel = new JPanel();
-        appPanel.setLayout(new BorderLayout(15, 15));
-        appPanel.setBackground(Color.WHITE);
-        appPanel.setBorder(BorderFactory.createCompoundBorder(
-            new ShadowBorder(10, 0.2f),
-            BorderFactory.createEmptyBorder(20, 20, 20, 20)
-        ));
+    // Rows are kept in index (name) order; returns the row, or -(insertion point) - 1
+    private int installedRow(String name) {
+        int low = 0;
+        int high = installedAppsModel.getSize() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = installedAppsModel.getElementAt(mid).name.compareTo(name);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private Map<String, AppEntry> onlineApps() {
+        CatalogSnapshot snapshot = catalog.current();
+        return snapshot != null ? snapshot.appsByJarName : Collections.emptyMap();
+    }
+
+    private InstalledApp installedApp(InstalledIndex.Record record, Map<String, AppEntry> onlineApps) {
+        AppEntry online = onlineApps.get(record.name);
+        return new InstalledApp(installedIndex.jarPath(record.name).toFile(), record.name, record.version,
+            online != null ? online.version : null, online != null ? online.icon : "");
+    }
 
-        // App info panel
-        JPanel infoPanel = new JPanel();
-        infoPanel.setLayout(new BoxLayout(infoPanel, BoxLayout.Y_AXIS));
-        infoPanel.setBackground(Color.WHITE);
-
-        String appName = appFile.getName().replace(".jar", "");
-        JLabel nameLabel = new JLabel(appName);
-        nameLabel.setFont(headerFont);
-        nameLabel.setForeground(primaryColor);
-
-        JLabel versionLabel = new JLabel("Version: " + localVersion);
-        versionLabel.setFont(normalFont);
-
-        infoPanel.add(nameLabel);
-        infoPanel.add(Box.createVerticalStrut(5));
-        infoPanel.add(versionLabel);
-
-        // Action button
-        JButton actionButton;
-        if (onlineVersion != null && !onlineVersion.equals(localVersion)) {
-            // Update available
-            actionButton = new JGradientButton("Update Available");
-            actionButton.setBackground(accentColor);
-            actionButton.addActionListener(e -> {
-                int choice = JOptionPane.showConfirmDialog(this,
-                    "A new version (" + onlineVersion + ") is available. Would you like to update?",
-                    "Update Available",
-                    JOptionPane.YES_NO_OPTION);
-                if (choice == JOptionPane.YES_OPTION) {
-                    // Trigger update from marketplace
+    private void onInstalledAction(InstalledApp app) {
+        if (app.hasUpdate()) {
+            int choice = JOptionPane.showConfirmDialog(this,
+                "A new version (" + app.onlineVersion + ") is available. Would you like to update?",
+                "Update Available",
+                JOptionPane.YES_NO_OPTION);
+            if (choice == JOptionPane.YES_OPTION) {
+                // Update from the catalog entry the version came from; it may offer a delta patch
+                CatalogSnapshot snapshot = catalog.current();
+                AppEntry online = snapshot != null ? snapshot.appsByJarName.get(app.name) : null;
+                if (online != null) {
+                    installApp(online);
+                } else {
                     loadMarketplaceApps();
                 }
-            });
-            
-            // Add update indicator
-            JLabel updateLabel = new JLabel("🔄 New version " + onlineVersion + " available");
-            updateLabel.setFont(normalFont);
-            updateLabel.setForeground(new Color(255, 140, 0));
-            infoPanel.add(Box.createVerticalStrut(5));
-            infoPanel.add(updateLabel);
+            }
         } else {
-            // Launch button
-            actionButton = new JGradientButton("Launch");
-            actionButton.addActionListener(e -> launchApp(appFile));
+            launchApp(app);
         }
+    }
 
-        appPanel.add(infoPanel, BorderLayout.CENTER);
-        appPanel.add(actionButton, BorderLayout.SOUTH);
-
-        GridBagConstraints gbc = new GridBagConstraints();
-        gbc.gridx = GridBagConstraints.RELATIVE;
-        gbc.gridy = GridBagConstraints.RELATIVE;
-        gbc.fill = GridBagConstraints.HORIZONTAL;
-        gbc.weightx = 0.5;
-        gbc.insets = new Insets(10, 10, 10, 10);
-
-        installedAppsPanel.add(appPanel, gbc);
+    private void installApp(AppEntry app) {
+        if (app.displayName().equals("DJA")) {
+            try {
+                updateDashboard(app.url);
+            } catch (Exception e) {
+                e.printStackTrace();  // Print the full error stack trace
+                JOptionPane.showMessageDialog(this,
+                    "Error installing app: " + e.getMessage(),
+                    "Installation Error",
+                    JOptionPane.ERROR_MESSAGE);
+            }
+            return;
+        }
+        // A single install is a one-app job, so it runs off the EDT with the same progress and rollback
+        InstalledIndex.Record installed = installedIndex.get(app.jarBaseName());
+        runUpdateJob(List.of(new UpdateJob.Item(app, installed != null ? installed.version : "")),
+            (installed != null ? "Updating " : "Installing ") + app.displayName(), () -> { });
     }
 
-    private void installApp(JSONObject app) {
-        try {
-            String appName = app.getString("name").replaceAll("\\s+", " ").trim();
-            String appUrl = app.getString("url");
-            String version = app.getString("version").trim();
-            
-            if (appName.equals("DJA")) {
-                updateDashboard(appUrl);
-            } else {
-                installRegularApp(appName, appUrl, version);
+    // Finds every outdated app off the EDT and updates them all in one job
+    private void updateAllApps() {
+        updatingAll = true;
+        refreshUpdateBar();
+        new SwingWorker<List<UpdateJob.Item>, Void>() {
+            @Override
+            protected List<UpdateJob.Item> doInBackground() throws IOException {
+                return UpdateJob.outdated(installedIndex.reconcile(), onlineApps());
             }
 
-            JOptionPane.showMessageDialog(this, 
-                "App installed successfully!",
-                "Installation Complete",
-                JOptionPane.INFORMATION_MESSAGE);
+            @Override
+            protected void done() {
+                List<UpdateJob.Item> items = Collections.emptyList();
+                try {
+                    items = get();
+                } catch (ExecutionException e) {
+                    e.getCause().printStackTrace();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (items.isEmpty()) {
+                    updatingAll = false;
+                    refreshUpdateBar();
+                    return;
+                }
+                runUpdateJob(items, "Updating " + items.size() + (items.size() == 1 ? " app" : " apps"), () -> {
+                    updatingAll = false;
+                    refreshUpdateBar();
+                });
+            }
+        }.execute();
+    }
 
-            loadInstalledApps();
-        } catch (Exception e) {
-            e.printStackTrace();  // Print the full error stack trace
-            JOptionPane.showMessageDialog(this, 
-                "Error installing app: " + e.getMessage(),
-                "Installation Error",
-                JOptionPane.ERROR_MESSAGE);
-        }
+    private void runUpdateJob(List<UpdateJob.Item> items, String title, Runnable onFinished) {
+        UpdateJob job = new UpdateJob(installer, items);
+        new UpdateProgressDialog(title, job, () -> {
+            // Show the new cards now; the watcher's later events for the same jars are no-ops
+            List<String> names = new ArrayList<>(items.size());
+            for (UpdateJob.Item item : items) {
+                names.add(item.app.jarBaseName());
+            }
+            applyInstalledChanges(names);
+            onFinished.run();
+        }).setVisible(true);
+        job.start();
     }
 
     private void updateDashboard(String url) throws Exception {
         try {
             // Create src directory if it doesn't exist
-            File srcDir = new File("src");
-            if (!srcDir.exists()) {
-                srcDir.mkdirs();
-            }
+            Path srcDir = Paths.get("src");
+            Files.createDirectories(srcDir);
 
             // Download new DJA.java
-            File tempFile = new File("src/DJA.java.new");
-            downloadFile(url, tempFile);
+            Path tempFile = srcDir.resolve("DJA.java.new");
+            downloadFile(url, tempFile.toFile());
 
-            // Get absolute paths
-            File jsonJar = new File("lib/json.jar").getAbsoluteFile();
-            
-            // Compile with proper paths
-            String[] command = {
-                "javac",
-                "-cp",
-                jsonJar.getAbsolutePath(),
-                tempFile.getAbsolutePath()
-            };
-            
-            ProcessBuilder pb = new ProcessBuilder(command);
-            pb.redirectErrorStream(true);
-            Process p = pb.start();
-            
-            // Capture the compiler output
-            StringBuilder output = new StringBuilder();
-            try (BufferedReader br = new BufferedReader(new InputStreamReader(p.getInputStream()))) {
-                String line;
-                while ((line = br.readLine()) != null) {
-                    output.append(line).append("\n");
-                    System.out.println("Compiler output: " + line);
-                }
+            // Compile under the real file name; no class file is replaced unless the whole update compiles
+            CompilerService.Result result;
+            Metrics.Span span = Metrics.start("dashboard.compile");
+            try {
+                result = compiler.compile("DJA.java", Files.readString(tempFile),
+                    List.of(Paths.get("lib", "json.jar").toAbsolutePath()), srcDir);
+            } finally {
+                span.end();
+            }
+            for (CompilerService.Problem problem : result.problems) {
+                System.out.println("Compiler output: " + problem);
             }
+            System.out.println("Compiled dashboard update in " + result.elapsedMillis + " ms ("
+                + (result.inProcess ? "in-process" : "external javac") + ")");
 
-            int result = p.waitFor();
-            if (result == 0) {
-                File currentFile = new File("src/DJA.java");
-                Files.move(tempFile.toPath(), currentFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            if (result.success) {
+                Files.move(tempFile, srcDir.resolve("DJA.java"), StandardCopyOption.REPLACE_EXISTING);
                 restartApplication();
             } else {
-                tempFile.delete();
-                throw new Exception("Compilation failed:\n" + output.toString());
+                Files.deleteIfExists(tempFile);
+                throw new Exception("Compilation failed:\n" + result.errors());
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -430,52 +822,46 @@ public class DJA extends JFrame {
         }
     }
 
-    private void installRegularApp(String appName, String url, String version) throws Exception {
-        File appsDir = new File("installed_apps");
-        if (!appsDir.exists()) {
-            appsDir.mkdirs();
-        }
-
-        String jarName = appName.replaceAll("\\s+", "") + ".jar";
-        File jarFile = new File(appsDir, jarName);
-        downloadFile(url, jarFile);
-
-        // Save version info
-        File versionFile = new File(appsDir, jarName.replace(".jar", ".version"));
-        Files.writeString(versionFile.toPath(), version);
-    }
-
     private void downloadFile(String url, File outputFile) throws Exception {
-        try (BufferedInputStream in = new BufferedInputStream(new URL(url).openStream());
-             FileOutputStream out = new FileOutputStream(outputFile)) {
-            byte[] buffer = new byte[1024];
-            int count;
-            while ((count = in.read(buffer, 0, 1024)) != -1) {
-                out.write(buffer, 0, count);
-            }
-        }
+        downloads.download(url, outputFile.toPath());
     }
 
     private void restartApplication() throws Exception {
         String javaBin = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
         File currentJar = new File(".");
         
-        ProcessBuilder pb = new ProcessBuilder(
-            javaBin, 
-            "-cp", 
-            "src;lib/json.jar", 
-            "DJA"
-        );
+        List<String> command = new ArrayList<>();
+        command.add(javaBin);
+        if (Files.isRegularFile(DASHBOARD_ARCHIVE)) {
+            command.add("-XX:SharedArchiveFile=" + DASHBOARD_ARCHIVE);
+            command.add("-Xshare:auto");
+        }
+        // Same order as the launcher script, so the archive's class path stays a prefix of this one
+        command.addAll(List.of("-cp", "lib" + File.separator + "json.jar" + File.pathSeparator + "src", "DJA"));
+        ProcessBuilder pb = new ProcessBuilder(command);
         pb.directory(currentJar);
         pb.start();
         
         System.exit(0);
     }
 
-    private void launchApp(File appFile) {
+    private void launchApp(InstalledApp app) {
         try {
-            ProcessBuilder pb = new ProcessBuilder("java", "-jar", appFile.getAbsolutePath());
-            pb.start();
+            Metrics.Span span = Metrics.start("app.launch").detail(app.name);
+            try {
+                InstalledIndex.Record record = installedIndex.get(app.name);
+                if (record != null) {
+                    // A warm worker if one is ready, otherwise a fresh JVM with the app's CDS archive
+                    if (record.mainClass.isEmpty() || pool.launch(app.jarFile.toPath(), record.mainClass) == null) {
+                        cds.launch(record);
+                    }
+                } else {
+                    ProcessBuilder pb = new ProcessBuilder("java", "-jar", app.jarFile.getAbsolutePath());
+                    pb.start();
+                }
+            } finally {
+                span.end();
+            }
         } catch (Exception e) {
             JOptionPane.showMessageDialog(this, 
                 "Error launching app: " + e.getMessage(),
@@ -484,60 +870,5950 @@ public class DJA extends JFrame {
         }
     }
 
-    // Custom gradient button class
-    private class JGradientButton extends JButton {
-        public JGradientButton(String text) {
-            super(text);
-            setContentAreaFilled(false);
-            setFocusPainted(false);
-            setBorderPainted(false);
-            setForeground(Color.WHITE);
-            setCursor(new Cursor(Cursor.HAND_CURSOR));
-            setPreferredSize(new Dimension(getPreferredSize().width, 45));
+    // Immutable view of one apps.json entry
+    private static final class AppEntry {
+        // Marker published by the marketplace loader when a newer snapshot replaces the rendered one
+        static final AppEntry RESET = new AppEntry("", "", "", "", "", "", "", Collections.emptyMap());
+
+        final String name;
+        final String url;
+        final String icon;
+        final String description;
+        final String version;
+        final String author;
+        // Optional hex SHA-256 of the jar at url; empty when the catalog does not publish one
+        final String sha256;
+        // Delta updates keyed by the installed version they apply to
+        final Map<String, Patch> patches;
+
+        AppEntry(String name, String url, String icon, String description, String version, String author,
+                 String sha256, Map<String, Patch> patches) {
+            this.name = name;
+            this.url = url;
+            this.icon = icon;
+            this.description = description;
+            this.version = version;
+            this.author = author;
+            this.sha256 = sha256;
+            this.patches = patches;
+        }
+
+        String displayName() {
+            return name.replaceAll("\\s+", " ").trim();
+        }
+
+        String displayDescription() {
+            return description.replaceAll("\\[|\\]|\\s+", " ").trim();
+        }
+
+        // Installed jars are named after the app with all whitespace removed
+        String jarBaseName() {
+            return name.replaceAll("\\s+", "");
         }
 
         @Override
-        protected void paintComponent(Graphics g) {
-            Graphics2D g2 = (Graphics2D) g.create();
-            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-            
-            if (getModel().isPressed()) {
-                g2.setPaint(buttonColor.darker());
-            } else if (getModel().isRollover()) {
-                g2.setPaint(accentColor);
-            } else {
-                g2.setPaint(buttonColor);
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof AppEntry)) {
+                return false;
+            }
+            AppEntry other = (AppEntry) o;
+            return name.equals(other.name) && url.equals(other.url) && icon.equals(other.icon)
+                && description.equals(other.description) && version.equals(other.version)
+                && author.equals(other.author) && sha256.equals(other.sha256) && patches.equals(other.patches);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, url, icon, description, version, author, sha256, patches);
+        }
+
+        // One entry of the optional "patches" map: a DeltaPatch from some older version to this one
+        static final class Patch {
+            final String url;
+            // Optional hex SHA-256 of the patch file itself; the patch carries the hash of its result
+            final String sha256;
+
+            Patch(String url, String sha256) {
+                this.url = url;
+                this.sha256 = sha256;
+            }
+
+            @Override
+            public boolean equals(Object o) {
+                return o instanceof Patch && url.equals(((Patch) o).url) && sha256.equals(((Patch) o).sha256);
+            }
+
+            @Override
+            public int hashCode() {
+                return Objects.hash(url, sha256);
             }
-            
-            g2.fillRoundRect(0, 0, getWidth(), getHeight(), 25, 25);
-            super.paintComponent(g2);
-            g2.dispose();
         }
     }
 
-    // Custom shadow border class
-    private class ShadowBorder extends AbstractBorder {
-        private final int shadowSize;
-        private final float shadowOpacity;
+    // One parsed, immutable catalog shared by the Marketplace and Installed Apps tabs
+    private static final class CatalogSnapshot {
+        final List<AppEntry> apps;
+        final Map<String, AppEntry> appsByJarName;
 
-        public ShadowBorder(int size, float opacity) {
-            this.shadowSize = size;
-            this.shadowOpacity = opacity;
+        CatalogSnapshot(List<AppEntry> apps) {
+            this.apps = Collections.unmodifiableList(new ArrayList<>(apps));
+            Map<String, AppEntry> byJarName = new HashMap<>();
+            for (AppEntry app : apps) {
+                byJarName.put(app.jarBaseName(), app);
+            }
+            this.appsByJarName = Collections.unmodifiableMap(byJarName);
         }
 
-        @Override
-        public void paintBorder(Component c, Graphics g, int x, int y, int width, int height) {
-            Graphics2D g2 = (Graphics2D) g.create();
-            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-            
-            for (int i = 0; i < shadowSize; i++) {
-                float opacity = shadowOpacity * (shadowSize - i) / shadowSize;
-                g2.setColor(new Color(0, 0, 0, (int)(opacity * 255)));
-                g2.drawRoundRect(x + i, y + i, width - i * 2 - 1, height - i * 2 - 1, 20, 20);
+        // Streams the apps array, handing each entry to onEntry as soon as it is parsed
+        static CatalogSnapshot read(Reader reader, Consumer<AppEntry> onEntry) throws IOException {
+            List<AppEntry> apps = new ArrayList<>();
+            JsonPullParser parser = new JsonPullParser(reader);
+            parser.beginObject();
+            while (parser.hasNext()) {
+                if (parser.nextName().equals("apps")) {
+                    parser.beginArray();
+                    while (parser.hasNext()) {
+                        AppEntry app = readEntry(parser);
+                        apps.add(app);
+                        onEntry.accept(app);
+                    }
+                    parser.endArray();
+                } else {
+                    parser.skipValue();
+                }
             }
-            
-            g2.setColor(cardColor);
-            g2.fillRoundRect(x, y, width - 1, height - 1, 20, 20);
+            parser.endObject();
+            return new CatalogSnapshot(apps);
+        }
+
+        private static AppEntry readEntry(JsonPullParser parser) throws IOException {
+            String name = null;
+            String url = null;
+            String icon = "";
+            String description = "";
+            String version = null;
+            String author = "";
+            String sha256 = "";
+            Map<String, AppEntry.Patch> patches = Collections.emptyMap();
+            parser.beginObject();
+            while (parser.hasNext()) {
+                switch (parser.nextName()) {
+                    case "name": name = parser.nextString(); break;
+                    case "url": url = parser.nextString(); break;
+                    case "icon": icon = parser.nextString(); break;
+                    case "description": description = parser.nextString(); break;
+                    case "version": version = parser.nextString().trim(); break;
+                    case "author": author = parser.nextString().trim(); break;
+                    case "sha256": sha256 = parser.nextString().trim(); break;
+                    case "patches": patches = readPatches(parser); break;
+                    default: parser.skipValue(); break;
+                }
+            }
+            parser.endObject();
+            if (name == null || url == null || version == null) {
+                throw new IOException("Catalog entry is missing name, url or version");
+            }
+            return new AppEntry(name, url, icon, description, version, author, sha256, patches);
+        }
+
+        // "patches": { "<from version>": { "url": ..., "sha256": ... }, ... }
+        private static Map<String, AppEntry.Patch> readPatches(JsonPullParser parser) throws IOException {
+            Map<String, AppEntry.Patch> patches = new HashMap<>();
+            parser.beginObject();
+            while (parser.hasNext()) {
+                String fromVersion = parser.nextName().trim();
+                String url = null;
+                String sha256 = "";
+                parser.beginObject();
+                while (parser.hasNext()) {
+                    switch (parser.nextName()) {
+                        case "url": url = parser.nextString(); break;
+                        case "sha256": sha256 = parser.nextString().trim(); break;
+                        default: parser.skipValue(); break;
+                    }
+                }
+                parser.endObject();
+                if (url == null) {
+                    throw new IOException("Catalog patch for version " + fromVersion + " is missing url");
+                }
+                patches.put(fromVersion, new AppEntry.Patch(url, sha256));
+            }
+            parser.endObject();
+            return Collections.unmodifiableMap(patches);
+        }
+    }
+
+    // Minimal pull parser over a character stream. Values the caller does not ask for are
+    // skipped without being materialized, so memory stays proportional to one entry.
+    private static final class JsonPullParser {
+        private final Reader reader;
+        private final char[] buffer = new char[8192];
+        private final StringBuilder text = new StringBuilder();
+        private int position;
+        private int limit;
+        // True when the next token in the current container must be preceded by a comma
+        private boolean expectComma;
+
+        JsonPullParser(Reader reader) {
+            this.reader = reader;
+        }
+
+        void beginObject() throws IOException {
+            consume('{');
+            expectComma = false;
+        }
+
+        void endObject() throws IOException {
+            consume('}');
+            expectComma = true;
+        }
+
+        void beginArray() throws IOException {
+            consume('[');
+            expectComma = false;
+        }
+
+        void endArray() throws IOException {
+            consume(']');
+            expectComma = true;
+        }
+
+        // True while the current object or array has more members
+        boolean hasNext() throws IOException {
+            int c = peek();
+            if (c == '}' || c == ']') {
+                return false;
+            }
+            if (expectComma) {
+                consume(',');
+                expectComma = false;
+            }
+            return true;
+        }
+
+        String nextName() throws IOException {
+            String name = readString();
+            consume(':');
+            expectComma = false;
+            return name;
+        }
+
+        // Reads a string; numbers and literals are returned as their source text
+        String nextString() throws IOException {
+            int c = peek();
+            String value;
+            if (c == '"') {
+                value = readString();
+            } else if (c == '{' || c == '[') {
+                throw syntaxError("Expected a scalar value");
+            } else {
+                value = readLiteral();
+            }
+            expectComma = true;
+            return value;
+        }
+
+        void skipValue() throws IOException {
+            int c = peek();
+            if (c == '"') {
+                position++;
+                skipStringBody();
+            } else if (c == '{' || c == '[') {
+                int depth = 0;
+                do {
+                    int next = read();
+                    if (next == '"') {
+                        skipStringBody();
+                    } else if (next == '{' || next == '[') {
+                        depth++;
+                    } else if (next == '}' || next == ']') {
+                        depth--;
+                    } else if (next == -1) {
+                        throw syntaxError("Unterminated value");
+                    }
+                } while (depth > 0);
+            } else {
+                readLiteral();
+            }
+            expectComma = true;
+        }
+
+        private String readString() throws IOException {
+            if (peek() != '"') {
+                throw syntaxError("Expected a string");
+            }
+            position++;
+            text.setLength(0);
+            while (true) {
+                int c = read();
+                if (c == '"') {
+                    return text.toString();
+                }
+                if (c == -1) {
+                    throw syntaxError("Unterminated string");
+                }
+                if (c == '\\') {
+                    c = read();
+                    switch (c) {
+                        case 'b': text.append('\b'); break;
+                        case 'f': text.append('\f'); break;
+                        case 'n': text.append('\n'); break;
+                        case 'r': text.append('\r'); break;
+                        case 't': text.append('\t'); break;
+                        case 'u':
+                            int code = 0;
+                            for (int i = 0; i < 4; i++) {
+                                int digit = Character.digit(read(), 16);
+                                if (digit < 0) {
+                                    throw syntaxError("Invalid unicode escape");
+                                }
+                                code = code * 16 + digit;
+                            }
+                            text.append((char) code);
+                            break;
+                        case -1: throw syntaxError("Unterminated string");
+                        default: text.append((char) c); break;
+                    }
+                } else {
+                    text.append((char) c);
+                }
+            }
+        }
+
+        private void skipStringBody() throws IOException {
+            while (true) {
+                int c = read();
+                if (c == '"') {
+                    return;
+                }
+                if (c == '\\') {
+                    read();
+                } else if (c == -1) {
+                    throw syntaxError("Unterminated string");
+                }
+            }
+        }
+
+        private String readLiteral() throws IOException {
+            text.setLength(0);
+            while (true) {
+                if (position == limit && !fill()) {
+                    break;
+                }
+                char c = buffer[position];
+                if (c == ',' || c == '}' || c == ']' || Character.isWhitespace(c)) {
+                    break;
+                }
+                text.append(c);
+                position++;
+            }
+            if (text.length() == 0) {
+                throw syntaxError("Expected a value");
+            }
+            return text.toString();
+        }
+
+        private void consume(char expected) throws IOException {
+            if (peek() != expected) {
+                throw syntaxError("Expected '" + expected + "'");
+            }
+            position++;
+        }
+
+        // Next non-whitespace character without consuming it, or -1 at end of input
+        private int peek() throws IOException {
+            while (true) {
+                if (position == limit && !fill()) {
+                    return -1;
+                }
+                char c = buffer[position];
+                if (!Character.isWhitespace(c)) {
+                    return c;
+                }
+                position++;
+            }
+        }
+
+        private int read() throws IOException {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            return buffer[position++];
+        }
+
+        private boolean fill() throws IOException {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return false;
+            }
+            return true;
+        }
+
+        private IOException syntaxError(String message) {
+            return new IOException("Malformed catalog: " + message);
+        }
+    }
+
+    // Fetches apps.json at most once per change. The raw catalog and its validators are
+    // persisted under the cache directory so an unchanged catalog costs a single 304.
+    private static final class CatalogRepository {
+        private final String catalogUrl;
+        private final Path catalogFile;
+        private final Path metaFile;
+        private volatile CatalogSnapshot snapshot;
+        private String etag;
+        private String lastModified;
+
+        CatalogRepository(String catalogUrl, Path cacheDir) {
+            this.catalogUrl = catalogUrl;
+            this.catalogFile = cacheDir.resolve("catalog.json");
+            this.metaFile = cacheDir.resolve("catalog.properties");
+        }
+
+        CatalogSnapshot current() {
+            return snapshot;
+        }
+
+        // Loads the snapshot persisted by a previous run, or returns null if there is none.
+        // Entries are handed to onEntry as they are read from disk.
+        synchronized CatalogSnapshot loadCached(Consumer<AppEntry> onEntry) {
+            if (snapshot != null) {
+                return snapshot;
+            }
+            if (!Files.isRegularFile(catalogFile) || !Files.isRegularFile(metaFile)) {
+                return null;
+            }
+            try {
+                Properties meta = new Properties();
+                try (Reader reader = Files.newBufferedReader(metaFile)) {
+                    meta.load(reader);
+                }
+                if (!catalogUrl.equals(meta.getProperty("url"))) {
+                    return null;
+                }
+                try (Reader reader = Files.newBufferedReader(catalogFile, StandardCharsets.UTF_8)) {
+                    snapshot = CatalogSnapshot.read(reader, onEntry);
+                }
+                etag = meta.getProperty("etag");
+                lastModified = meta.getProperty("lastModified");
+                return snapshot;
+            } catch (IOException e) {
+                // A corrupt cache is just a cache miss
+                e.printStackTrace();
+                return null;
+            }
+        }
+
+        // Revalidates with the server and returns the same instance when the catalog is
+        // unchanged. A changed catalog is streamed: onEntry receives AppEntry.RESET and then
+        // each entry as it is parsed, while the raw bytes are teed into the cache file.
+        synchronized CatalogSnapshot refresh(Consumer<AppEntry> onEntry) throws IOException {
+            loadCached(app -> { });
+            URLConnection opened = new URL(catalogUrl).openConnection();
+            if (!(opened instanceof HttpURLConnection)) {
+                return refreshLocal(opened, onEntry);
+            }
+            HttpURLConnection connection = (HttpURLConnection) opened;
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout(READ_TIMEOUT_MS);
+            if (snapshot != null) {
+                if (etag != null) {
+                    connection.setRequestProperty("If-None-Match", etag);
+                }
+                if (lastModified != null) {
+                    connection.setRequestProperty("If-Modified-Since", lastModified);
+                }
+            }
+            try {
+                int status;
+                Metrics.Span span = Metrics.start("catalog.request").detail(catalogUrl);
+                try {
+                    status = connection.getResponseCode();
+                } finally {
+                    span.end();
+                }
+                if (status == HttpURLConnection.HTTP_NOT_MODIFIED && snapshot != null) {
+                    return snapshot;
+                }
+                if (status != HttpURLConnection.HTTP_OK) {
+                    throw new IOException("Catalog request failed: HTTP " + status);
+                }
+                return stream(connection.getInputStream(), connection.getHeaderField("ETag"),
+                    connection.getHeaderField("Last-Modified"), onEntry);
+            } finally {
+                connection.disconnect();
+            }
+        }
+
+        // A mirror on a file system or shared drive: unchanged while its modification time and size are
+        private CatalogSnapshot refreshLocal(URLConnection connection, Consumer<AppEntry> onEntry) throws IOException {
+            String stamp = connection.getLastModified() + "/" + connection.getContentLengthLong();
+            if (snapshot != null && stamp.equals(lastModified)) {
+                return snapshot;
+            }
+            return stream(connection.getInputStream(), null, stamp, onEntry);
+        }
+
+        private CatalogSnapshot stream(InputStream body, String newEtag, String newLastModified,
+                                       Consumer<AppEntry> onEntry) throws IOException {
+            Path tempCatalog = catalogFile.resolveSibling(catalogFile.getFileName() + ".tmp");
+            OutputStream cacheOut = openCacheFile(tempCatalog);
+            CatalogSnapshot parsed;
+            // Reading and parsing overlap, so this is the transfer of the body as much as the parse
+            Metrics.Span stream = Metrics.start("catalog.stream");
+            try (InputStream in = new TeeInputStream(body, cacheOut)) {
+                onEntry.accept(AppEntry.RESET);
+                parsed = CatalogSnapshot.read(new InputStreamReader(in, StandardCharsets.UTF_8), onEntry);
+                // Trailing whitespace still belongs in the cached copy
+                in.transferTo(OutputStream.nullOutputStream());
+            } finally {
+                stream.end();
+            }
+            if (Files.isRegularFile(tempCatalog)) {
+                persist(tempCatalog, newEtag, newLastModified);
+            }
+            etag = newEtag;
+            lastModified = newLastModified;
+            snapshot = parsed;
+            return parsed;
+        }
+
+        // The raw apps.json last received, as the server wrote it
+        JSONObject cachedJson() throws IOException {
+            if (!Files.isRegularFile(catalogFile)) {
+                throw new IOException("No cached catalog in " + catalogFile);
+            }
+            return new JSONObject(Files.readString(catalogFile));
+        }
+
+        // -Ddja.catalog, either the URL of an apps.json, the base URL of a mirror written by
+        // 'dja store export', or a local directory holding one; the upstream catalog when unset
+        static String configuredUrl() {
+            String configured = System.getProperty("dja.catalog", "").trim();
+            if (configured.isEmpty()) {
+                return MARKETPLACE_URL;
+            }
+            // A URL scheme, rather than a path or a Windows drive letter
+            if (!configured.matches("[A-Za-z][A-Za-z0-9+.-]+:.*")) {
+                configured = Paths.get(configured).toAbsolutePath().toUri().toString();
+            }
+            return configured.endsWith(".json") ? configured
+                : configured + (configured.endsWith("/") ? "" : "/") + "apps.json";
+        }
+
+        private OutputStream openCacheFile(Path tempCatalog) {
+            try {
+                Files.createDirectories(tempCatalog.getParent());
+                return new BufferedOutputStream(Files.newOutputStream(tempCatalog));
+            } catch (IOException e) {
+                // Without a cache the catalog still loads; it just is not persisted
+                e.printStackTrace();
+                return OutputStream.nullOutputStream();
+            }
+        }
+
+        private void persist(Path tempCatalog, String newEtag, String newLastModified) {
+            try {
+                Properties meta = new Properties();
+                meta.setProperty("url", catalogUrl);
+                if (newEtag != null) {
+                    meta.setProperty("etag", newEtag);
+                }
+                if (newLastModified != null) {
+                    meta.setProperty("lastModified", newLastModified);
+                }
+                Files.move(tempCatalog, catalogFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                Path tempMeta = metaFile.resolveSibling(metaFile.getFileName() + ".tmp");
+                try (Writer writer = Files.newBufferedWriter(tempMeta)) {
+                    meta.store(writer, "DJA catalog cache");
+                }
+                Files.move(tempMeta, metaFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                // The in-memory snapshot is still valid; the next run will refetch
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // Type-ahead search over the name, description and author of catalog entries. Text is folded
+    // to lowercase tokens without accents; each distinct token is a term with a posting list of
+    // document ids, and terms are stored in a trie so a query token matches every term it starts.
+    // Catalog changes are applied as a diff: dropped entries are tombstoned, new ones appended,
+    // and everything is rebuilt only once tombstones make up a quarter of the documents.
+    private static final class SearchIndex {
+        // Shorter query tokens never fall back to typo-tolerant matching; they match too much
+        private static final int MIN_FUZZY_LENGTH = 4;
+        private static final int TWO_EDIT_LENGTH = 8;
+        // Terms with at least this many postings also keep them as a bitmap
+        private static final int DENSE_POSTINGS = 1024;
+        private static final int NONE = -1;
+
+        private List<AppEntry> catalogApps = Collections.emptyList();
+        // Document id -> entry; ids are only reused after a rebuild
+        private final List<AppEntry> docs = new ArrayList<>();
+        private final Map<AppEntry, Integer> docIds = new HashMap<>();
+        private final BitSet removed = new BitSet();
+        // Document id -> its distinct terms, for checking a few candidates without expanding postings
+        private int[][] docTerms = new int[256][];
+        private long docTermCount;
+        // Document id -> index in catalogApps, so results come back in catalog order. Ids already
+        // are catalog indexes after a rebuild, which lets results skip the reordering pass.
+        private int[] positions = new int[0];
+        private boolean idsInCatalogOrder = true;
+        private int[][] postings = new int[256][];
+        private int[] postingSizes = new int[256];
+        private BitSet[] densePostings = new BitSet[256];
+        private int termCount;
+        // Trie nodes in parallel arrays; node 0 is the root and children form a sibling list
+        private char[] labels = new char[1024];
+        private int[] firstChild = new int[1024];
+        private int[] nextSibling = new int[1024];
+        private int[] terms = new int[1024];
+        private int nodeCount;
+        private int[] scratch = new int[64];
+
+        SearchIndex() {
+            clear();
+        }
+
+        // Brings the index in line with the given catalog; unchanged entries keep their postings
+        synchronized void update(List<AppEntry> apps) {
+            if (apps == catalogApps) {
+                return;
+            }
+            Set<AppEntry> wanted = new HashSet<>(apps);
+            for (Iterator<Map.Entry<AppEntry, Integer>> it = docIds.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<AppEntry, Integer> doc = it.next();
+                if (!wanted.contains(doc.getKey())) {
+                    int id = doc.getValue();
+                    removed.set(id);
+                    docs.set(id, null);
+                    docTermCount -= docTerms[id].length;
+                    docTerms[id] = null;
+                    it.remove();
+                }
+            }
+            if (removed.cardinality() > docs.size() / 4) {
+                clear();
+            }
+            for (AppEntry app : apps) {
+                if (!docIds.containsKey(app)) {
+                    add(app);
+                }
+            }
+            positions = new int[docs.size()];
+            idsInCatalogOrder = docs.size() == apps.size();
+            for (int i = 0; i < apps.size(); i++) {
+                int id = docIds.get(apps.get(i));
+                positions[id] = i;
+                idsInCatalogOrder &= id == i;
+            }
+            catalogApps = apps;
+        }
+
+        // Entries matching every token of the query, in catalog order. The last token is usually
+        // still being typed, so all tokens match as prefixes. With typoTolerant a token that
+        // matches nothing is retried allowing one edit, or two for long tokens.
+        synchronized List<AppEntry> search(String query, boolean typoTolerant) {
+            List<String> tokens = tokenize(query);
+            if (tokens.isEmpty()) {
+                return catalogApps;
+            }
+            List<TermSet> tokenTerms = new ArrayList<>(tokens.size());
+            for (String token : tokens) {
+                TermSet matched = new TermSet(termCount);
+                int node = find(token);
+                if (node != NONE) {
+                    collect(node, matched);
+                }
+                if (matched.postings == 0 && typoTolerant && token.length() >= MIN_FUZZY_LENGTH) {
+                    fuzzy(token, token.length() >= TWO_EDIT_LENGTH ? 2 : 1, matched);
+                }
+                if (matched.postings == 0) {
+                    return Collections.emptyList();
+                }
+                tokenTerms.add(matched);
+            }
+
+            // Start from the rarest token. Each further token either has its postings expanded and
+            // intersected, or, when few candidates are left, is looked up in their own terms.
+            tokenTerms.sort(Comparator.comparingLong(matched -> matched.postings));
+            BitSet matches = expand(tokenTerms.get(0));
+            long termsPerDoc = Math.max(1, docTermCount / Math.max(1, docs.size() - removed.cardinality()));
+            for (TermSet matched : tokenTerms.subList(1, tokenTerms.size())) {
+                if (matches.cardinality() * termsPerDoc < matched.postings) {
+                    for (int doc = matches.nextSetBit(0); doc >= 0; doc = matches.nextSetBit(doc + 1)) {
+                        if (!matched.containsAny(docTerms[doc])) {
+                            matches.clear(doc);
+                        }
+                    }
+                } else {
+                    matches.and(expand(matched));
+                }
+                if (matches.isEmpty()) {
+                    return Collections.emptyList();
+                }
+            }
+            matches.andNot(removed);
+
+            int count = matches.cardinality();
+            if (count == docIds.size()) {
+                return catalogApps;
+            }
+            if (!idsInCatalogOrder) {
+                BitSet ordered = new BitSet(catalogApps.size());
+                for (int doc = matches.nextSetBit(0); doc >= 0; doc = matches.nextSetBit(doc + 1)) {
+                    ordered.set(positions[doc]);
+                }
+                matches = ordered;
+            }
+            int[] resultPositions = new int[count];
+            for (int i = 0, position = matches.nextSetBit(0); i < count; i++, position = matches.nextSetBit(position + 1)) {
+                resultPositions[i] = position;
+            }
+            return new Results(catalogApps, resultPositions);
+        }
+
+        // Matching entries as a view over the catalog, so large result sets are not copied here
+        private static final class Results extends AbstractList<AppEntry> implements RandomAccess {
+            private final List<AppEntry> apps;
+            private final int[] positions;
+
+            Results(List<AppEntry> apps, int[] positions) {
+                this.apps = apps;
+                this.positions = positions;
+            }
+
+            @Override
+            public AppEntry get(int index) {
+                return apps.get(positions[index]);
+            }
+
+            @Override
+            public int size() {
+                return positions.length;
+            }
+        }
+
+        static List<String> tokenize(String text) {
+            String folded = fold(text);
+            List<String> tokens = new ArrayList<>();
+            int start = -1;
+            for (int i = 0; i <= folded.length(); i++) {
+                boolean word = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+                if (word && start < 0) {
+                    start = i;
+                } else if (!word && start >= 0) {
+                    tokens.add(folded.substring(start, i));
+                    start = -1;
+                }
+            }
+            return tokens;
+        }
+
+        // Lowercases and strips accents; the Unicode decomposition is skipped for plain ASCII
+        private static String fold(String text) {
+            for (int i = 0; i < text.length(); i++) {
+                if (text.charAt(i) >= 0x80) {
+                    text = Normalizer.normalize(text, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+                    break;
+                }
+            }
+            return text.toLowerCase(Locale.ROOT);
+        }
+
+        // The terms one query token matched, and how many postings they have between them
+        private static final class TermSet {
+            final BitSet terms;
+            long postings;
+
+            TermSet(int termCount) {
+                terms = new BitSet(termCount);
+            }
+
+            boolean containsAny(int[] docTerms) {
+                if (docTerms != null) {
+                    for (int term : docTerms) {
+                        if (terms.get(term)) {
+                            return true;
+                        }
+                    }
+                }
+                return false;
+            }
+        }
+
+        private BitSet expand(TermSet matched) {
+            BitSet hits = new BitSet(docs.size());
+            for (int term = matched.terms.nextSetBit(0); term >= 0; term = matched.terms.nextSetBit(term + 1)) {
+                if (densePostings[term] != null) {
+                    hits.or(densePostings[term]);
+                } else {
+                    int[] list = postings[term];
+                    for (int i = postingSizes[term] - 1; i >= 0; i--) {
+                        hits.set(list[i]);
+                    }
+                }
+            }
+            return hits;
+        }
+
+        private void clear() {
+            docs.clear();
+            docIds.clear();
+            removed.clear();
+            docTermCount = 0;
+            termCount = 0;
+            nodeCount = 1;
+            firstChild[0] = NONE;
+            nextSibling[0] = NONE;
+            terms[0] = NONE;
+        }
+
+        private void add(AppEntry app) {
+            int doc = docs.size();
+            docs.add(app);
+            docIds.put(app, doc);
+            int count = index(app.name, doc, 0);
+            count = index(app.description, doc, count);
+            count = index(app.author, doc, count);
+            if (doc == docTerms.length) {
+                docTerms = Arrays.copyOf(docTerms, doc * 2);
+            }
+            docTerms[doc] = Arrays.copyOf(scratch, count);
+            docTermCount += count;
+        }
+
+        // Adds the document to the postings of each token in text and appends terms new to the
+        // document to scratch, which already holds count terms; returns the new count
+        private int index(String text, int doc, int count) {
+            for (String token : tokenize(text)) {
+                int term = termFor(token);
+                int size = postingSizes[term];
+                int[] list = postings[term];
+                // Documents are added in id order, so a repeated token is always the last posting
+                if (size > 0 && list[size - 1] == doc) {
+                    continue;
+                }
+                if (size == list.length) {
+                    list = Arrays.copyOf(list, size * 2);
+                    postings[term] = list;
+                }
+                list[size] = doc;
+                postingSizes[term] = ++size;
+                if (size == DENSE_POSTINGS) {
+                    densePostings[term] = new BitSet(docs.size());
+                    for (int i = 0; i < size; i++) {
+                        densePostings[term].set(list[i]);
+                    }
+                } else if (size > DENSE_POSTINGS) {
+                    densePostings[term].set(doc);
+                }
+                if (count == scratch.length) {
+                    scratch = Arrays.copyOf(scratch, count * 2);
+                }
+                scratch[count++] = term;
+            }
+            return count;
+        }
+
+        private int termFor(String token) {
+            int node = 0;
+            for (int i = 0; i < token.length(); i++) {
+                char c = token.charAt(i);
+                int child = child(node, c);
+                if (child == NONE) {
+                    child = addNode(node, c);
+                }
+                node = child;
+            }
+            if (terms[node] == NONE) {
+                if (termCount == postings.length) {
+                    postings = Arrays.copyOf(postings, termCount * 2);
+                    postingSizes = Arrays.copyOf(postingSizes, termCount * 2);
+                    densePostings = Arrays.copyOf(densePostings, termCount * 2);
+                }
+                postings[termCount] = new int[2];
+                postingSizes[termCount] = 0;
+                densePostings[termCount] = null;
+                terms[node] = termCount++;
+            }
+            return terms[node];
+        }
+
+        private int child(int node, char c) {
+            for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+                if (labels[child] == c) {
+                    return child;
+                }
+            }
+            return NONE;
+        }
+
+        private int addNode(int parent, char c) {
+            if (nodeCount == labels.length) {
+                int capacity = nodeCount * 2;
+                labels = Arrays.copyOf(labels, capacity);
+                firstChild = Arrays.copyOf(firstChild, capacity);
+                nextSibling = Arrays.copyOf(nextSibling, capacity);
+                terms = Arrays.copyOf(terms, capacity);
+            }
+            int node = nodeCount++;
+            labels[node] = c;
+            firstChild[node] = NONE;
+            terms[node] = NONE;
+            nextSibling[node] = firstChild[parent];
+            firstChild[parent] = node;
+            return node;
+        }
+
+        private int find(String prefix) {
+            int node = 0;
+            for (int i = 0; i < prefix.length() && node != NONE; i++) {
+                node = child(node, prefix.charAt(i));
+            }
+            return node;
+        }
+
+        // Adds every term in the subtree under node
+        private void collect(int node, TermSet matched) {
+            int term = terms[node];
+            if (term != NONE) {
+                matched.terms.set(term);
+                matched.postings += postingSizes[term];
+            }
+            for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+                collect(child, matched);
+            }
+        }
+
+        // Walks the trie carrying one row of the Levenshtein table per node. Once the whole token
+        // is within maxEdits of the path so far, every term below the node matches; a branch is
+        // abandoned as soon as no cell in its row is within maxEdits.
+        private void fuzzy(String token, int maxEdits, TermSet matched) {
+            int[] row = new int[token.length() + 1];
+            for (int i = 0; i < row.length; i++) {
+                row[i] = i;
+            }
+            for (int child = firstChild[0]; child != NONE; child = nextSibling[child]) {
+                fuzzy(child, token, row, maxEdits, matched);
+            }
+        }
+
+        private void fuzzy(int node, String token, int[] previous, int maxEdits, TermSet matched) {
+            int[] row = new int[previous.length];
+            row[0] = previous[0] + 1;
+            int best = row[0];
+            char c = labels[node];
+            for (int i = 1; i < row.length; i++) {
+                int substitution = previous[i - 1] + (token.charAt(i - 1) == c ? 0 : 1);
+                row[i] = Math.min(substitution, Math.min(row[i - 1], previous[i]) + 1);
+                best = Math.min(best, row[i]);
+            }
+            if (row[row.length - 1] <= maxEdits) {
+                collect(node, matched);
+                return;
+            }
+            if (best > maxEdits) {
+                return;
+            }
+            for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+                fuzzy(child, token, row, maxEdits, matched);
+            }
+        }
+    }
+
+    // Copies everything read from the wrapped stream into a second stream
+    private static final class TeeInputStream extends FilterInputStream {
+        private final OutputStream copy;
+
+        TeeInputStream(InputStream in, OutputStream copy) {
+            super(in);
+            this.copy = copy;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                copy.write(b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int count = super.read(b, off, len);
+            if (count > 0) {
+                copy.write(b, off, count);
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Route skips through read so the copy stays complete
+            byte[] scratch = new byte[(int) Math.min(n, 8192)];
+            int count = read(scratch, 0, scratch.length);
+            return Math.max(count, 0);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                copy.close();
+            }
+        }
+    }
+
+    // Downloads files over HTTP. Large files on servers that accept byte ranges are split
+    // into segments fetched concurrently and written straight into their offsets of a
+    // preallocated file. Segment progress is persisted next to the target so an
+    // interrupted download resumes where it stopped.
+    private static final class DownloadEngine {
+        static final long SEGMENT_THRESHOLD = 4L * 1024 * 1024;
+        static final int MAX_SEGMENTS = 4;
+        private static final long MIN_SEGMENT_SIZE = 1024 * 1024;
+        private static final int BUFFER_SIZE = 64 * 1024;
+        private static final long TRANSFER_CHUNK = 1024 * 1024;
+        private static final long CHECKPOINT_BYTES = 1024 * 1024;
+        private static final int MAX_ATTEMPTS = 3;
+
+        private final ExecutorService segmentPool;
+        private final AtomicLong bytesTransferred = new AtomicLong();
+        private final AtomicLong transferNanos = new AtomicLong();
+        private final AtomicLong filesCompleted = new AtomicLong();
+        private volatile double lastThroughput;
+
+        DownloadEngine() {
+            segmentPool = Executors.newFixedThreadPool(MAX_SEGMENTS * 2, runnable -> {
+                Thread thread = new Thread(runnable, "dja-download");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        // Total bytes received across all downloads
+        long bytesTransferred() {
+            return bytesTransferred.get();
+        }
+
+        long filesCompleted() {
+            return filesCompleted.get();
+        }
+
+        // Average bytes per second over the wall time spent downloading
+        double averageThroughput() {
+            long nanos = transferNanos.get();
+            return nanos == 0 ? 0 : bytesTransferred.get() * 1e9 / nanos;
+        }
+
+        // Bytes per second of the most recently completed download
+        double lastThroughput() {
+            return lastThroughput;
+        }
+
+        // Receives the bytes of target written so far and the expected length, or -1 when the server
+        // did not say. Segmented downloads report from several threads.
+        interface Progress {
+            Progress NONE = (received, length) -> { };
+
+            void update(long received, long length);
+        }
+
+        // Downloads url into target and returns the hex SHA-256 of the written file
+        String download(String url, Path target) throws IOException {
+            return download(url, target, Progress.NONE);
+        }
+
+        String download(String url, Path target, Progress progress) throws IOException {
+            Metrics.Span span = Metrics.start("download").detail(url);
+            try {
+                return timedDownload(url, target, progress);
+            } finally {
+                span.end();
+            }
+        }
+
+        private String timedDownload(String url, Path target, Progress progress) throws IOException {
+            long start = System.nanoTime();
+            long before = bytesTransferred.get();
+            Probe probe = probe(url);
+            AtomicLong received = new AtomicLong();
+            LongConsumer transferred = count -> progress.update(received.addAndGet(count), probe.length);
+            String sha256;
+            if (probe.acceptsRanges && probe.length >= SEGMENT_THRESHOLD) {
+                downloadSegmented(url, target, probe, transferred);
+                // Segments land out of order, so the digest needs one sequential pass
+                sha256 = Digests.sha256(target);
+            } else {
+                sha256 = downloadSingle(url, target, transferred);
+            }
+            long nanos = Math.max(1, System.nanoTime() - start);
+            transferNanos.addAndGet(nanos);
+            filesCompleted.incrementAndGet();
+            lastThroughput = (bytesTransferred.get() - before) * 1e9 / nanos;
+            return sha256;
+        }
+
+        private Probe probe(String url) {
+            Probe probe = new Probe();
+            try {
+                URLConnection connection = new URL(url).openConnection();
+                if (!(connection instanceof HttpURLConnection)) {
+                    return probe;
+                }
+                HttpURLConnection http = (HttpURLConnection) connection;
+                http.setRequestMethod("HEAD");
+                http.setConnectTimeout(CONNECT_TIMEOUT_MS);
+                http.setReadTimeout(READ_TIMEOUT_MS);
+                try {
+                    if (http.getResponseCode() == HttpURLConnection.HTTP_OK) {
+                        probe.length = http.getContentLengthLong();
+                        probe.acceptsRanges = "bytes".equalsIgnoreCase(http.getHeaderField("Accept-Ranges"));
+                        probe.validator = http.getHeaderField("ETag");
+                        if (probe.validator == null) {
+                            probe.validator = http.getHeaderField("Last-Modified");
+                        }
+                    }
+                } finally {
+                    http.disconnect();
+                }
+            } catch (IOException e) {
+                // Servers that reject HEAD still get a plain single-stream download
+            }
+            return probe;
+        }
+
+        // Streams the body straight into the file channel, hashing each chunk as it passes
+        private String downloadSingle(String url, Path target, LongConsumer transferred) throws IOException {
+            URLConnection connection = new URL(url).openConnection();
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout(READ_TIMEOUT_MS);
+            MessageDigest digest = Digests.newSha256();
+            try (ReadableByteChannel in = new HashingChannel(Channels.newChannel(connection.getInputStream()), digest,
+                     transferred);
+                 FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                long position = 0;
+                long count;
+                while ((count = out.transferFrom(in, position, TRANSFER_CHUNK)) > 0) {
+                    position += count;
+                }
+            }
+            return Digests.hex(digest.digest());
+        }
+
+        private void downloadSegmented(String url, Path target, Probe probe, LongConsumer transferred)
+                throws IOException {
+            Path mapFile = target.resolveSibling(target.getFileName() + ".parts");
+            SegmentMap map = SegmentMap.load(mapFile, url, probe);
+            if (map == null || !Files.isRegularFile(target) || Files.size(target) != probe.length) {
+                map = SegmentMap.create(mapFile, url, probe);
+                try (RandomAccessFile file = new RandomAccessFile(target.toFile(), "rw")) {
+                    file.setLength(probe.length);
+                }
+                map.save();
+            }
+            transferred.accept(map.writtenBytes());
+
+            try (FileChannel channel = FileChannel.open(target, StandardOpenOption.WRITE)) {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < map.segmentCount(); i++) {
+                    if (!map.isComplete(i)) {
+                        int segment = i;
+                        SegmentMap segments = map;
+                        futures.add(segmentPool.submit(() -> {
+                            fetchSegment(url, channel, segments, segment, probe.validator, transferred);
+                            return null;
+                        }));
+                    }
+                }
+                try {
+                    for (Future<?> future : futures) {
+                        future.get();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Download interrupted: " + url);
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+                } finally {
+                    for (Future<?> future : futures) {
+                        future.cancel(true);
+                    }
+                    // Keep progress on failure so the next attempt resumes from here
+                    map.save();
+                }
+                channel.force(false);
+            }
+            Files.deleteIfExists(mapFile);
+        }
+
+        private void fetchSegment(String url, FileChannel channel, SegmentMap map, int segment, String validator,
+                                  LongConsumer transferred) throws IOException {
+            int attempts = 0;
+            while (!map.isComplete(segment)) {
+                long before = map.next(segment);
+                try {
+                    fetchRange(url, channel, map, segment, validator, transferred);
+                } catch (IOException e) {
+                    // Only attempts that made no progress count towards giving up
+                    attempts = map.next(segment) > before ? 0 : attempts + 1;
+                    if (attempts >= MAX_ATTEMPTS || Thread.currentThread().isInterrupted()) {
+                        throw e;
+                    }
+                }
+            }
+        }
+
+        private void fetchRange(String url, FileChannel channel, SegmentMap map, int segment, String validator,
+                                LongConsumer transferred) throws IOException {
+            long position = map.next(segment);
+            long end = map.end(segment);
+            HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout(READ_TIMEOUT_MS);
+            connection.setRequestProperty("Range", "bytes=" + position + "-" + end);
+            if (validator != null) {
+                connection.setRequestProperty("If-Range", validator);
+            }
+            try {
+                if (connection.getResponseCode() != HttpURLConnection.HTTP_PARTIAL) {
+                    throw new IOException("Server did not honour range request for " + url
+                        + " (HTTP " + connection.getResponseCode() + ")");
+                }
+                try (InputStream in = connection.getInputStream()) {
+                    byte[] buffer = new byte[BUFFER_SIZE];
+                    long sinceCheckpoint = 0;
+                    int count;
+                    while (position <= end && (count = in.read(buffer, 0, (int) Math.min(buffer.length, end - position + 1))) != -1) {
+                        if (Thread.currentThread().isInterrupted()) {
+                            throw new InterruptedIOException("Download interrupted: " + url);
+                        }
+                        ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, count);
+                        while (chunk.hasRemaining()) {
+                            position += channel.write(chunk, position);
+                        }
+                        map.advance(segment, position);
+                        bytesTransferred.addAndGet(count);
+                        transferred.accept(count);
+                        sinceCheckpoint += count;
+                        if (sinceCheckpoint >= CHECKPOINT_BYTES) {
+                            map.save();
+                            sinceCheckpoint = 0;
+                        }
+                    }
+                }
+                if (position <= end) {
+                    throw new EOFException("Connection closed at byte " + position + " of " + url);
+                }
+            } finally {
+                connection.disconnect();
+            }
+        }
+
+        // Feeds every byte read through a digest and the transfer counter
+        private final class HashingChannel implements ReadableByteChannel {
+            private final ReadableByteChannel source;
+            private final MessageDigest digest;
+            private final LongConsumer transferred;
+
+            HashingChannel(ReadableByteChannel source, MessageDigest digest, LongConsumer transferred) {
+                this.source = source;
+                this.digest = digest;
+                this.transferred = transferred;
+            }
+
+            @Override
+            public int read(ByteBuffer dst) throws IOException {
+                int start = dst.position();
+                int count = source.read(dst);
+                if (count > 0) {
+                    ByteBuffer view = dst.duplicate();
+                    view.limit(start + count);
+                    view.position(start);
+                    digest.update(view);
+                    bytesTransferred.addAndGet(count);
+                    transferred.accept(count);
+                }
+                return count;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return source.isOpen();
+            }
+
+            @Override
+            public void close() throws IOException {
+                source.close();
+            }
+        }
+
+        private static final class Probe {
+            long length = -1;
+            boolean acceptsRanges;
+            String validator;
+        }
+
+        // Byte ranges of one segmented download and how far each has been written
+        private static final class SegmentMap {
+            private final Path file;
+            private final String url;
+            private final long length;
+            private final String validator;
+            private final long[] starts;
+            private final long[] ends;
+            private final AtomicLongArray next;
+
+            private SegmentMap(Path file, String url, long length, String validator, long[] starts, long[] ends, long[] next) {
+                this.file = file;
+                this.url = url;
+                this.length = length;
+                this.validator = validator;
+                this.starts = starts;
+                this.ends = ends;
+                this.next = new AtomicLongArray(next);
+            }
+
+            static SegmentMap create(Path file, String url, Probe probe) {
+                int count = (int) Math.max(1, Math.min(MAX_SEGMENTS, probe.length / MIN_SEGMENT_SIZE));
+                long size = probe.length / count;
+                long[] starts = new long[count];
+                long[] ends = new long[count];
+                for (int i = 0; i < count; i++) {
+                    starts[i] = i * size;
+                    ends[i] = i == count - 1 ? probe.length - 1 : (i + 1) * size - 1;
+                }
+                return new SegmentMap(file, url, probe.length, probe.validator, starts, ends, starts.clone());
+            }
+
+            // Returns null when there is no map or it describes a different version of the file
+            static SegmentMap load(Path file, String url, Probe probe) {
+                if (!Files.isRegularFile(file)) {
+                    return null;
+                }
+                try {
+                    Properties props = new Properties();
+                    try (Reader reader = Files.newBufferedReader(file)) {
+                        props.load(reader);
+                    }
+                    if (!url.equals(props.getProperty("url"))
+                            || probe.length != Long.parseLong(props.getProperty("length"))
+                            || !Objects.equals(probe.validator, props.getProperty("validator"))) {
+                        return null;
+                    }
+                    int count = Integer.parseInt(props.getProperty("segments"));
+                    long[] starts = new long[count];
+                    long[] ends = new long[count];
+                    long[] next = new long[count];
+                    for (int i = 0; i < count; i++) {
+                        String[] parts = props.getProperty("segment." + i).split(",");
+                        starts[i] = Long.parseLong(parts[0]);
+                        ends[i] = Long.parseLong(parts[1]);
+                        next[i] = Long.parseLong(parts[2]);
+                    }
+                    return new SegmentMap(file, url, probe.length, probe.validator, starts, ends, next);
+                } catch (Exception e) {
+                    return null;
+                }
+            }
+
+            int segmentCount() {
+                return starts.length;
+            }
+
+            long next(int segment) {
+                return next.get(segment);
+            }
+
+            long end(int segment) {
+                return ends[segment];
+            }
+
+            // Bytes already in place, e.g. from an interrupted earlier attempt
+            long writtenBytes() {
+                long written = 0;
+                for (int i = 0; i < starts.length; i++) {
+                    written += next.get(i) - starts[i];
+                }
+                return written;
+            }
+
+            boolean isComplete(int segment) {
+                return next.get(segment) > ends[segment];
+            }
+
+            void advance(int segment, long position) {
+                next.set(segment, position);
+            }
+
+            synchronized void save() throws IOException {
+                Properties props = new Properties();
+                props.setProperty("url", url);
+                props.setProperty("length", Long.toString(length));
+                if (validator != null) {
+                    props.setProperty("validator", validator);
+                }
+                props.setProperty("segments", Integer.toString(starts.length));
+                for (int i = 0; i < starts.length; i++) {
+                    props.setProperty("segment." + i, starts[i] + "," + ends[i] + "," + next.get(i));
+                }
+                Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+                try (Writer writer = Files.newBufferedWriter(temp)) {
+                    props.store(writer, "DJA download segments");
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+    }
+
+    // SHA-256 helpers shared by downloads and installs
+    private static final class Digests {
+        private static final int READ_BUFFER_SIZE = 256 * 1024;
+
+        static MessageDigest newSha256() {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+
+        static String sha256(Path file) throws IOException {
+            MessageDigest digest = newSha256();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                while (channel.read(buffer) != -1) {
+                    buffer.flip();
+                    digest.update(buffer);
+                    buffer.clear();
+                }
+            }
+            return hex(digest.digest());
+        }
+
+        static String hex(byte[] bytes) {
+            StringBuilder hex = new StringBuilder(bytes.length * 2);
+            for (byte b : bytes) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        }
+    }
+
+    // Every jar DJA has installed, stored once under installed_apps/.blobs/<aa>/<sha256>.jar where aa
+    // is the hash's first two digits. Installed jars are hard links to their blob, so reinstalling or
+    // rolling back to a stored version is a link and a rename: no download and no copy. blobs.dat
+    // remembers which app and version each blob was installed as (identical jars of two apps share
+    // one blob) and when. gc forgets versions no installed app uses once they fall out of the
+    // retention policy, and deletes blobs nothing remembers: an app's newest keepVersions versions are
+    // kept for keepDays after they were last installed (-Ddja.store.keepVersions, default 3, and
+    // -Ddja.store.keepDays, default 90).
+    private static final class BlobStore {
+        private static final int MAGIC = 0x444A4142; // "DJAB"
+        private static final int FORMAT_VERSION = 1;
+
+        // One app version stored as a blob
+        static final class Blob {
+            final String sha256;
+            // Jar base name and version the blob was installed as
+            final String app;
+            final String version;
+            final long size;
+            final long lastUsed;
+
+            Blob(String sha256, String app, String version, long size, long lastUsed) {
+                this.sha256 = sha256;
+                this.app = app;
+                this.version = version;
+                this.size = size;
+                this.lastUsed = lastUsed;
+            }
+        }
+
+        private final Path root;
+        private final Path file;
+        private final int keepVersions;
+        private final long keepMillis;
+        // Keyed by app and hash
+        private final Map<String, Blob> blobs = new HashMap<>();
+        private boolean loaded;
+
+        BlobStore(Path root, int keepVersions, long keepMillis) {
+            this.root = root;
+            this.file = root.resolve("blobs.dat");
+            this.keepVersions = keepVersions;
+            this.keepMillis = keepMillis;
+        }
+
+        static BlobStore fromSystemProperties(Path appsDir) {
+            return new BlobStore(appsDir.resolve(".blobs"), Math.max(1, Integer.getInteger("dja.store.keepVersions", 3)),
+                TimeUnit.DAYS.toMillis(Long.getLong("dja.store.keepDays", 90)));
+        }
+
+        Path path(String sha256) {
+            String hash = sha256.toLowerCase(Locale.ROOT);
+            return root.resolve(hash.substring(0, 2)).resolve(hash + ".jar");
+        }
+
+        // A stored blob with this hash, or null if the store does not have it
+        synchronized Blob get(String sha256) {
+            ensureLoaded();
+            for (Blob blob : blobs.values()) {
+                if (blob.sha256.equalsIgnoreCase(sha256)) {
+                    return Files.isRegularFile(path(blob.sha256)) ? blob : null;
+                }
+            }
+            return null;
+        }
+
+        // Whether the store holds this jar as a version of the app
+        synchronized boolean has(String app, String sha256) {
+            ensureLoaded();
+            return blobs.containsKey(key(app, sha256)) && Files.isRegularFile(path(sha256));
+        }
+
+        // The most recently installed blob of one version of an app, for catalogs without checksums
+        synchronized Blob find(String app, String version) {
+            for (Blob blob : versions(app)) {
+                if (blob.version.equals(version)) {
+                    return blob;
+                }
+            }
+            return null;
+        }
+
+        // Stored blobs of an app, most recently installed first
+        synchronized List<Blob> versions(String app) {
+            ensureLoaded();
+            List<Blob> versions = new ArrayList<>();
+            for (Blob blob : blobs.values()) {
+                if (blob.app.equals(app) && Files.isRegularFile(path(blob.sha256))) {
+                    versions.add(blob);
+                }
+            }
+            versions.sort((a, b) -> Long.compare(b.lastUsed, a.lastUsed));
+            return versions;
+        }
+
+        // Moves a verified download into the store, or drops it when the store already has those bytes
+        synchronized Path add(Path download, String sha256, String app, String version) throws IOException {
+            ensureLoaded();
+            Path blob = path(sha256);
+            if (Files.isRegularFile(blob)) {
+                Files.delete(download);
+            } else {
+                Files.createDirectories(blob.getParent());
+                Files.move(download, blob, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            record(sha256, app, version, Files.size(blob));
+            return blob;
+        }
+
+        // Takes in a jar installed before it went through the store: a hard link, so nothing is copied
+        synchronized void adopt(Path jar, String app, String version) throws IOException {
+            ensureLoaded();
+            String sha256 = Digests.sha256(jar);
+            Path blob = path(sha256);
+            if (!Files.isRegularFile(blob)) {
+                Files.createDirectories(blob.getParent());
+                Path temp = blob.resolveSibling(blob.getFileName() + ".tmp");
+                link(jar, temp);
+                Files.move(temp, blob, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            if (!blobs.containsKey(key(app, sha256))) {
+                record(sha256, app, version, Files.size(blob));
+            }
+        }
+
+        // Points target at a blob with a new link beside it renamed over it, so target is never missing,
+        // and remembers it as that version of the app
+        synchronized void install(String sha256, String app, String version, Path target) throws IOException {
+            ensureLoaded();
+            Path blob = path(sha256);
+            if (!Files.isRegularFile(blob)) {
+                throw new NoSuchFileException(blob.toString(), null, "not in the store");
+            }
+            Path temp = target.resolveSibling(target.getFileName() + ".link");
+            link(blob, temp);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            record(sha256, app, version, Files.size(blob));
+        }
+
+        // Forgets versions outside the retention policy that none of the inUse hashes refer to, then
+        // deletes the blobs no version refers to any more, along with files left by an interrupted add;
+        // returns how many bytes were freed
+        synchronized long gc(Set<String> inUse) throws IOException {
+            ensureLoaded();
+            long now = System.currentTimeMillis();
+            Map<String, List<Blob>> byApp = new HashMap<>();
+            for (Blob blob : blobs.values()) {
+                byApp.computeIfAbsent(blob.app, app -> new ArrayList<>()).add(blob);
+            }
+            for (List<Blob> versions : byApp.values()) {
+                versions.sort((a, b) -> Long.compare(b.lastUsed, a.lastUsed));
+                for (int i = 0; i < versions.size(); i++) {
+                    Blob blob = versions.get(i);
+                    boolean retained = i < keepVersions && now - blob.lastUsed < keepMillis;
+                    if (!retained && !inUse.contains(blob.sha256)) {
+                        blobs.remove(key(blob.app, blob.sha256));
+                    }
+                }
+            }
+            Set<String> referenced = new HashSet<>();
+            for (Blob blob : blobs.values()) {
+                referenced.add(blob.sha256 + ".jar");
+            }
+            long freed = 0;
+            if (Files.isDirectory(root)) {
+                try (DirectoryStream<Path> shards = Files.newDirectoryStream(root, Files::isDirectory)) {
+                    for (Path shard : shards) {
+                        try (DirectoryStream<Path> files = Files.newDirectoryStream(shard)) {
+                            for (Path path : files) {
+                                if (!referenced.contains(path.getFileName().toString())) {
+                                    freed += Files.size(path);
+                                    Files.delete(path);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+            save();
+            return freed;
+        }
+
+        // Writes a mirror other DJA instances can use as their catalog: every catalog entry the store
+        // has bytes for gets its jar in dir/blobs and its url pointed there under baseUrl. Entries the
+        // store lacks keep their upstream url, and delta patches are dropped since they point upstream.
+        // Returns how many entries the mirror serves itself.
+        synchronized int export(JSONObject catalog, Path dir, String baseUrl) throws IOException {
+            ensureLoaded();
+            Path blobDir = dir.resolve("blobs");
+            Files.createDirectories(blobDir);
+            String base = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+            JSONObject mirror = new JSONObject(catalog.toString());
+            JSONArray apps = mirror.optJSONArray("apps");
+            int served = 0;
+            for (int i = 0; apps != null && i < apps.length(); i++) {
+                JSONObject app = apps.getJSONObject(i);
+                String sha256 = app.optString("sha256", "");
+                Blob blob = !sha256.isEmpty() ? get(sha256)
+                    : find(app.optString("name", "").replaceAll("\\s+", ""), app.optString("version", ""));
+                if (blob == null) {
+                    continue;
+                }
+                Path copy = blobDir.resolve(blob.sha256 + ".jar");
+                if (!Files.exists(copy)) {
+                    link(path(blob.sha256), copy);
+                }
+                app.put("url", base + "blobs/" + blob.sha256 + ".jar");
+                app.put("sha256", blob.sha256);
+                app.remove("patches");
+                served++;
+            }
+            Path temp = dir.resolve("apps.json.tmp");
+            Files.writeString(temp, mirror.toString(4) + "\n");
+            Files.move(temp, dir.resolve("apps.json"), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+            return served;
+        }
+
+        private void record(String sha256, String app, String version, long size) throws IOException {
+            String hash = sha256.toLowerCase(Locale.ROOT);
+            blobs.put(key(app, hash), new Blob(hash, app, version, size, System.currentTimeMillis()));
+            save();
+        }
+
+        private static String key(String app, String sha256) {
+            return app + '/' + sha256.toLowerCase(Locale.ROOT);
+        }
+
+        // Hard link where the file system allows one, otherwise a copy
+        private static void link(Path existing, Path link) throws IOException {
+            Files.deleteIfExists(link);
+            try {
+                Files.createLink(link, existing);
+            } catch (IOException | UnsupportedOperationException e) {
+                Files.copy(existing, link);
+            }
+        }
+
+        private void ensureLoaded() {
+            if (loaded) {
+                return;
+            }
+            loaded = true;
+            if (!Files.exists(file)) {
+                return;
+            }
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file)))) {
+                if (in.readInt() != MAGIC || in.readUnsignedByte() != FORMAT_VERSION) {
+                    throw new IOException("unrecognised format");
+                }
+                for (int count = in.readInt(); count > 0; count--) {
+                    Blob blob = new Blob(in.readUTF(), in.readUTF(), in.readUTF(), in.readLong(), in.readLong());
+                    blobs.put(key(blob.app, blob.sha256), blob);
+                }
+            } catch (IOException e) {
+                // Blobs are named by their hash, so losing this only loses versions and retention ages
+                System.err.println("Ignoring unreadable " + file + ": " + e.getMessage());
+                blobs.clear();
+            }
+        }
+
+        private void save() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + blobs.size() * 120);
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeInt(MAGIC);
+                out.writeByte(FORMAT_VERSION);
+                out.writeInt(blobs.size());
+                for (Blob blob : blobs.values()) {
+                    out.writeUTF(blob.sha256);
+                    out.writeUTF(blob.app);
+                    out.writeUTF(blob.version);
+                    out.writeLong(blob.size);
+                    out.writeLong(blob.lastUsed);
+                }
+            }
+            Files.createDirectories(root);
+            Path temp = root.resolve("blobs.dat.tmp");
+            Files.write(temp, bytes.toByteArray());
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    // Installs app jars without ever exposing a partial file: the jar is downloaded to a temp file
+    // beside its destination, verified, and moved into the BlobStore; installing it is then a hard
+    // link renamed over the jar. The two halves can also run separately, so a batch can download one
+    // app while installing another. A version the store already has is never downloaded again.
+    private static final class AppInstaller {
+        private final DownloadEngine downloads;
+        private final Path appsDir;
+        private final InstalledIndex index;
+        private final BlobStore store;
+        private final ConcurrentHashMap<String, Object> appLocks = new ConcurrentHashMap<>();
+
+        // A verified jar in the store, ready to be swapped in
+        static final class Staged {
+            final AppEntry app;
+            final Path file;
+            final String sha256;
+
+            Staged(AppEntry app, Path file, String sha256) {
+                this.app = app;
+                this.file = file;
+                this.sha256 = sha256;
+            }
+        }
+
+        AppInstaller(DownloadEngine downloads, Path appsDir, InstalledIndex index, BlobStore store) {
+            this.downloads = downloads;
+            this.appsDir = appsDir;
+            this.index = index;
+            this.store = store;
+        }
+
+        Path install(AppEntry app) throws IOException {
+            return install(app, DownloadEngine.Progress.NONE);
+        }
+
+        Path install(AppEntry app, DownloadEngine.Progress progress) throws IOException {
+            synchronized (lockFor(app.jarBaseName())) {
+                return commit(fetch(app, progress));
+            }
+        }
+
+        // Puts back the most recently installed other version of an app from the store
+        Path rollback(String name) throws IOException {
+            synchronized (lockFor(name)) {
+                InstalledIndex.Record current = index.get(name);
+                if (current == null) {
+                    throw new IOException(name + " is not installed");
+                }
+                for (BlobStore.Blob blob : store.versions(name)) {
+                    if (!blob.sha256.equalsIgnoreCase(current.sha256)) {
+                        return swapIn(name, blob.version, blob.sha256);
+                    }
+                }
+                throw new IOException("No other version of " + name + " is stored");
+            }
+        }
+
+        // Finds the new jar in the store, or downloads it, as a delta patch when the catalog has one for
+        // the installed version, verifies it and stores it. The installed jar is not touched.
+        Staged fetch(AppEntry app, DownloadEngine.Progress progress) throws IOException {
+            Metrics.Span span = Metrics.start("install.fetch").detail(app.jarBaseName());
+            try {
+                return stage(app, progress);
+            } finally {
+                span.end();
+            }
+        }
+
+        private Staged stage(AppEntry app, DownloadEngine.Progress progress) throws IOException {
+            String baseName = app.jarBaseName();
+            synchronized (lockFor(baseName)) {
+                BlobStore.Blob stored = !app.sha256.isEmpty() ? store.get(app.sha256)
+                    : store.find(baseName, app.version);
+                if (stored != null) {
+                    return new Staged(app, store.path(stored.sha256), stored.sha256);
+                }
+
+                Files.createDirectories(appsDir);
+                Path jar = appsDir.resolve(baseName + ".jar");
+                // Fixed temp name so an interrupted segmented download can resume
+                Path tempJar = appsDir.resolve(baseName + ".jar.download");
+
+                Path newJar = null;
+                String sha256 = null;
+                InstalledIndex.Record installed = index.get(baseName);
+                AppEntry.Patch patch = installed != null && Files.exists(jar) ? app.patches.get(installed.version) : null;
+                if (patch != null) {
+                    Path patchedJar = appsDir.resolve(baseName + ".jar.patched");
+                    try {
+                        sha256 = applyPatch(app, patch, jar, appsDir.resolve(baseName + ".jar.patch"), patchedJar,
+                            progress);
+                        newJar = patchedJar;
+                    } catch (InterruptedIOException | ClosedByInterruptException e) {
+                        throw e;
+                    } catch (IOException e) {
+                        // Wrong base, bad download or failed verification: the full jar is always a valid fallback
+                        System.err.println("Delta update of " + app.displayName() + " failed, downloading full jar: "
+                            + e.getMessage());
+                    }
+                }
+
+                if (newJar == null) {
+                    sha256 = downloads.download(app.url, tempJar, progress);
+                    if (!app.sha256.isEmpty() && !app.sha256.equalsIgnoreCase(sha256)) {
+                        Files.deleteIfExists(tempJar);
+                        throw new IOException("Checksum mismatch for " + app.displayName()
+                            + ": expected " + app.sha256 + " but downloaded " + sha256);
+                    }
+                    newJar = tempJar;
+                }
+
+                // Catalogs without checksums still must not replace a working app with an error page
+                try (java.util.jar.JarFile jarFile = new java.util.jar.JarFile(newJar.toFile())) {
+                    jarFile.getManifest();
+                } catch (IOException e) {
+                    Files.deleteIfExists(newJar);
+                    throw new IOException("Download of " + app.displayName() + " is not a valid jar: " + e.getMessage());
+                }
+                return new Staged(app, store.add(newJar, sha256, baseName, app.version), sha256);
+            }
+        }
+
+        // Swaps a staged jar in and records it. If it cannot be recorded, the previous jar and its
+        // index record are put back, so the app is left exactly as it was.
+        Path commit(Staged staged) throws IOException {
+            Metrics.Span span = Metrics.start("install.commit").detail(staged.app.jarBaseName());
+            try {
+                return swapIn(staged.app.jarBaseName(), staged.app.version, staged.sha256);
+            } finally {
+                span.end();
+            }
+        }
+
+        private Path swapIn(String baseName, String version, String sha256) throws IOException {
+            synchronized (lockFor(baseName)) {
+                Path jar = appsDir.resolve(baseName + ".jar");
+                InstalledIndex.Record previous = index.get(baseName);
+                // The jar being replaced goes into the store too, which is what makes it a rollback target
+                if (previous != null && Files.exists(jar) && !store.has(baseName, previous.sha256)) {
+                    store.adopt(jar, baseName, previous.version);
+                }
+                store.install(sha256, baseName, version, jar);
+                try {
+                    index.put(baseName, version, sha256);
+                } catch (IOException | RuntimeException e) {
+                    try {
+                        if (previous != null && store.get(previous.sha256) != null) {
+                            store.install(previous.sha256, baseName, previous.version, jar);
+                        } else {
+                            Files.deleteIfExists(jar);
+                        }
+                        index.restore(baseName, previous);
+                    } catch (IOException rollbackFailure) {
+                        e.addSuppressed(rollbackFailure);
+                    }
+                    throw e;
+                }
+                try {
+                    store.gc(index.hashes());
+                } catch (IOException e) {
+                    System.err.println("Could not clean up the app store: " + e.getMessage());
+                }
+                return jar;
+            }
+        }
+
+        private Object lockFor(String name) {
+            return appLocks.computeIfAbsent(name, key -> new Object());
+        }
+
+        private String applyPatch(AppEntry app, AppEntry.Patch patch, Path jar, Path patchFile, Path patchedJar,
+                                  DownloadEngine.Progress progress) throws IOException {
+            try {
+                String patchSha256 = downloads.download(patch.url, patchFile, progress);
+                if (!patch.sha256.isEmpty() && !patch.sha256.equalsIgnoreCase(patchSha256)) {
+                    throw new IOException("Checksum mismatch for patch " + patch.url);
+                }
+                String sha256 = DeltaPatch.apply(jar, patchFile, patchedJar);
+                if (!app.sha256.isEmpty() && !app.sha256.equalsIgnoreCase(sha256)) {
+                    Files.deleteIfExists(patchedJar);
+                    throw new IOException("Patched jar does not match the catalog checksum");
+                }
+                return sha256;
+            } finally {
+                Files.deleteIfExists(patchFile);
+            }
+        }
+    }
+
+    // Brings a set of apps to their catalog versions as one job. Downloads, each verified as it
+    // lands, run a few at a time; every verified jar is then swapped in on a single install thread
+    // while the remaining downloads carry on. A failure only affects its own app: before the swap
+    // nothing has changed, and AppInstaller.commit rolls back one that fails after it. Cancelling
+    // stops downloads in flight and skips everything not yet installed.
+    private static final class UpdateJob {
+        static final int MAX_CONCURRENT_DOWNLOADS = 3;
+
+        enum State { QUEUED, DOWNLOADING, INSTALLING, UPDATED, FAILED, CANCELLED }
+
+        // One app of the job; fields are written by the job's threads and polled by the progress view
+        static final class Item {
+            final AppEntry app;
+            // Installed version, empty for an app that is not installed yet
+            final String fromVersion;
+            volatile State state = State.QUEUED;
+            volatile long received;
+            // Download size, or -1 until known
+            volatile long length = -1;
+            volatile String error = "";
+
+            Item(AppEntry app, String fromVersion) {
+                this.app = app;
+                this.fromVersion = fromVersion;
+            }
+
+            boolean isFinished() {
+                State current = state;
+                return current == State.UPDATED || current == State.FAILED || current == State.CANCELLED;
+            }
+
+            // Share of this item's work that is done, 0 to 1
+            double progress() {
+                if (isFinished() || state == State.INSTALLING) {
+                    return 1;
+                }
+                long total = length;
+                return state == State.DOWNLOADING && total > 0 ? Math.min(1, (double) received / total) : 0;
+            }
+        }
+
+        // Every installed app whose catalog entry has a newer version, found in one pass over the index
+        static List<Item> outdated(Collection<InstalledIndex.Record> installed, Map<String, AppEntry> catalog) {
+            List<Item> items = new ArrayList<>();
+            for (InstalledIndex.Record record : installed) {
+                AppEntry online = catalog.get(record.name);
+                if (online != null && VersionComparator.isNewer(online.version, record.version)) {
+                    items.add(new Item(online, record.version));
+                }
+            }
+            return items;
+        }
+
+        private final AppInstaller installer;
+        private final List<Item> items;
+        private final ExecutorService downloadPool;
+        private final ExecutorService installThread;
+        private final List<Future<?>> downloads = new ArrayList<>();
+        private final CountDownLatch remaining;
+        private volatile boolean cancelled;
+
+        UpdateJob(AppInstaller installer, List<Item> items) {
+            this.installer = installer;
+            this.items = List.copyOf(items);
+            this.remaining = new CountDownLatch(items.size());
+            downloadPool = Executors.newFixedThreadPool(Math.max(1, Math.min(MAX_CONCURRENT_DOWNLOADS, items.size())),
+                task -> {
+                    Thread thread = new Thread(task, "update-download");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            installThread = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, "update-install");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        List<Item> items() {
+            return items;
+        }
+
+        synchronized void start() {
+            for (Item item : items) {
+                downloads.add(downloadPool.submit(() -> download(item)));
+            }
+            downloadPool.shutdown();
+            if (items.isEmpty()) {
+                installThread.shutdown();
+            }
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            for (Future<?> download : downloads) {
+                download.cancel(true);
+            }
+            // Downloads cancelled before they started never run, so they are finished here
+            for (Item item : items) {
+                if (item.state == State.QUEUED) {
+                    finish(item, State.CANCELLED, "");
+                }
+            }
+        }
+
+        boolean isDone() {
+            return remaining.getCount() == 0;
+        }
+
+        void await() throws InterruptedException {
+            remaining.await();
+        }
+
+        int count(State state) {
+            int count = 0;
+            for (Item item : items) {
+                if (item.state == state) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        // Overall share of the job that is done, 0 to 1
+        double progress() {
+            double done = 0;
+            for (Item item : items) {
+                done += item.progress();
+            }
+            return items.isEmpty() ? 1 : done / items.size();
+        }
+
+        private void download(Item item) {
+            if (cancelled || !advance(item, State.DOWNLOADING)) {
+                finish(item, State.CANCELLED, "");
+                return;
+            }
+            AppInstaller.Staged staged;
+            try {
+                staged = installer.fetch(item.app, (received, length) -> {
+                    item.length = length;
+                    item.received = received;
+                });
+            } catch (IOException | RuntimeException e) {
+                finish(item, cancelled ? State.CANCELLED : State.FAILED, String.valueOf(e.getMessage()));
+                return;
+            }
+            installThread.execute(() -> install(item, staged));
+        }
+
+        private void install(Item item, AppInstaller.Staged staged) {
+            try {
+                if (cancelled || !advance(item, State.INSTALLING)) {
+                    // The staged jar stays in the store, so installing it later costs no download
+                    finish(item, State.CANCELLED, "");
+                    return;
+                }
+                installer.commit(staged);
+                finish(item, State.UPDATED, "");
+            } catch (IOException | RuntimeException e) {
+                finish(item, State.FAILED, String.valueOf(e.getMessage()));
+            }
+        }
+
+        // Moves an unfinished item to its next working state; false once it has been finished
+        private static boolean advance(Item item, State next) {
+            synchronized (item) {
+                if (item.isFinished()) {
+                    return false;
+                }
+                item.state = next;
+                return true;
+            }
+        }
+
+        private void finish(Item item, State state, String error) {
+            synchronized (item) {
+                if (item.isFinished()) {
+                    return;
+                }
+                item.error = error;
+                item.state = state;
+            }
+            remaining.countDown();
+            if (remaining.getCount() == 0) {
+                installThread.shutdown();
+            }
+        }
+    }
+
+    // Everything the dashboard knows about installed apps, kept in installed_apps/index.dat. The file is
+    // read in one pass on first use and reconciled against the directory by size and mtime, so a refresh
+    // costs one listing plus a stat per jar; only new or changed jars are opened.
+    private static final class InstalledIndex {
+        private static final int MAGIC = 0x444A4149; // "DJAI"
+        // Version 2 added the CDS archive key; version 1 files are still read
+        private static final int FORMAT_VERSION = 2;
+        // What getLocalVersion reported for jars installed without a version file
+        private static final String DEFAULT_VERSION = "1.0";
+
+        static final class Record {
+            final String name;
+            final String version;
+            final long size;
+            final long modified;
+            final String sha256;
+            // Main-Class from the jar manifest, empty when it has none
+            final String mainClass;
+            final long installedAt;
+            // CdsArchives.archiveKey of the jar the <name>.jsa archive was built from, empty when there is none
+            final String archiveKey;
+
+            Record(String name, String version, long size, long modified, String sha256, String mainClass,
+                   long installedAt, String archiveKey) {
+                this.name = name;
+                this.version = version;
+                this.size = size;
+                this.modified = modified;
+                this.sha256 = sha256;
+                this.mainClass = mainClass;
+                this.installedAt = installedAt;
+                this.archiveKey = archiveKey;
+            }
+        }
+
+        private final Path appsDir;
+        private final Path file;
+        private final Map<String, Record> records = new TreeMap<>();
+        private boolean loaded;
+
+        InstalledIndex(Path appsDir) {
+            this.appsDir = appsDir;
+            this.file = appsDir.resolve("index.dat");
+        }
+
+        Path jarPath(String name) {
+            return appsDir.resolve(name + ".jar");
+        }
+
+        synchronized Record get(String name) {
+            ensureLoaded();
+            return records.get(name);
+        }
+
+        // Records a freshly installed jar that is already in place
+        synchronized Record put(String name, String version, String sha256) throws IOException {
+            ensureLoaded();
+            Path jar = jarPath(name);
+            BasicFileAttributes attributes = Files.readAttributes(jar, BasicFileAttributes.class);
+            Record record = new Record(name, version, attributes.size(), attributes.lastModifiedTime().toMillis(),
+                sha256, readMainClass(jar), System.currentTimeMillis(), "");
+            records.put(name, record);
+            save();
+            return record;
+        }
+
+        // Hashes of every installed jar
+        synchronized Set<String> hashes() {
+            ensureLoaded();
+            Set<String> hashes = new HashSet<>();
+            for (Record record : records.values()) {
+                hashes.add(record.sha256.toLowerCase(Locale.ROOT));
+            }
+            return hashes;
+        }
+
+        // Puts back the record an install replaced; null means the app was not installed before
+        synchronized void restore(String name, Record previous) throws IOException {
+            ensureLoaded();
+            if (previous != null) {
+                records.put(name, previous);
+            } else {
+                records.remove(name);
+            }
+            save();
+        }
+
+        synchronized void setArchiveKey(String name, String sha256, String archiveKey) throws IOException {
+            ensureLoaded();
+            Record r = records.get(name);
+            if (r != null && r.sha256.equals(sha256) && !r.archiveKey.equals(archiveKey)) {
+                records.put(name, new Record(r.name, r.version, r.size, r.modified, r.sha256, r.mainClass,
+                    r.installedAt, archiveKey));
+                save();
+            }
+        }
+
+        // Brings the index in line with the jars on disk and returns every record, ordered by name
+        synchronized List<Record> reconcile() throws IOException {
+            ensureLoaded();
+            boolean changed = false;
+            Set<String> present = new HashSet<>();
+            List<Path> migrated = new ArrayList<>();
+            if (Files.isDirectory(appsDir)) {
+                try (DirectoryStream<Path> jars = Files.newDirectoryStream(appsDir, "*.jar")) {
+                    for (Path jar : jars) {
+                        String fileName = jar.getFileName().toString();
+                        String name = fileName.substring(0, fileName.length() - ".jar".length());
+                        present.add(name);
+                        changed |= examine(name, Files.readAttributes(jar, BasicFileAttributes.class), migrated);
+                    }
+                }
+            }
+            changed |= records.keySet().retainAll(present);
+            commit(changed, migrated);
+            return new ArrayList<>(records.values());
+        }
+
+        // Re-examines only the named jars, dropping the records of any that are gone
+        synchronized void refresh(Collection<String> names) throws IOException {
+            ensureLoaded();
+            boolean changed = false;
+            List<Path> migrated = new ArrayList<>();
+            for (String name : names) {
+                try {
+                    changed |= examine(name, Files.readAttributes(jarPath(name), BasicFileAttributes.class), migrated);
+                } catch (NoSuchFileException e) {
+                    changed |= records.remove(name) != null;
+                } catch (IOException e) {
+                    // Most likely still being written; its next modify event brings it back here
+                    System.err.println("Skipping " + name + ".jar for now: " + e.getMessage());
+                }
+            }
+            commit(changed, migrated);
+        }
+
+        // Updates the record for one jar if its size or mtime moved; returns whether anything changed
+        private boolean examine(String name, BasicFileAttributes attributes, List<Path> migrated) throws IOException {
+            long size = attributes.size();
+            long modified = attributes.lastModifiedTime().toMillis();
+            Record known = records.get(name);
+            if (known != null && known.size == size && known.modified == modified) {
+                return false;
+            }
+
+            // New or replaced behind our back; a legacy .version file wins over what we had
+            Path jar = jarPath(name);
+            String version = known != null ? known.version : DEFAULT_VERSION;
+            Path versionFile = appsDir.resolve(name + ".version");
+            if (Files.exists(versionFile)) {
+                version = Files.readString(versionFile).trim();
+                migrated.add(versionFile);
+            }
+            records.put(name, new Record(name, version, size, modified, Digests.sha256(jar), readMainClass(jar),
+                known != null ? known.installedAt : modified, ""));
+            return true;
+        }
+
+        private void commit(boolean changed, List<Path> migrated) throws IOException {
+            if (changed) {
+                save();
+            }
+            // Only once the index holding their versions is durable
+            for (Path versionFile : migrated) {
+                Files.deleteIfExists(versionFile);
+            }
+        }
+
+        private void ensureLoaded() {
+            if (loaded) {
+                return;
+            }
+            loaded = true;
+            if (!Files.exists(file)) {
+                return;
+            }
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file)))) {
+                int version = in.readInt() == MAGIC ? in.readUnsignedByte() : -1;
+                if (version < 1 || version > FORMAT_VERSION) {
+                    throw new IOException("unrecognised format");
+                }
+                for (int count = in.readInt(); count > 0; count--) {
+                    Record record = new Record(in.readUTF(), in.readUTF(), in.readLong(), in.readLong(),
+                        in.readUTF(), in.readUTF(), in.readLong(), version >= 2 ? in.readUTF() : "");
+                    records.put(record.name, record);
+                }
+            } catch (IOException e) {
+                // Writes are atomic, so this is a foreign or truncated file; reconcile rebuilds from the jars
+                System.err.println("Ignoring unreadable " + file + ": " + e.getMessage());
+                records.clear();
+            }
+        }
+
+        private void save() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + records.size() * 160);
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeInt(MAGIC);
+                out.writeByte(FORMAT_VERSION);
+                out.writeInt(records.size());
+                for (Record record : records.values()) {
+                    out.writeUTF(record.name);
+                    out.writeUTF(record.version);
+                    out.writeLong(record.size);
+                    out.writeLong(record.modified);
+                    out.writeUTF(record.sha256);
+                    out.writeUTF(record.mainClass);
+                    out.writeLong(record.installedAt);
+                    out.writeUTF(record.archiveKey);
+                }
+            }
+            Files.createDirectories(appsDir);
+            Path temp = appsDir.resolve("index.dat.tmp");
+            Files.write(temp, bytes.toByteArray());
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        private static String readMainClass(Path jar) {
+            try (java.util.jar.JarFile jarFile = new java.util.jar.JarFile(jar.toFile())) {
+                java.util.jar.Manifest manifest = jarFile.getManifest();
+                String mainClass = manifest != null
+                    ? manifest.getMainAttributes().getValue(java.util.jar.Attributes.Name.MAIN_CLASS) : null;
+                return mainClass != null ? mainClass : "";
+            } catch (IOException e) {
+                return "";
+            }
+        }
+    }
+
+    // Per-app Class Data Sharing archives, kept next to each jar as <name>.jsa. The first launch after an
+    // install or update doubles as the training run: the JVM writes the archive when the user closes the
+    // app. Later launches map it for as long as it matches both the jar's hash and this JVM build.
+    private static final class CdsArchives {
+        private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("dja.cds", "true"));
+        // Dynamic archives need JDK 13+; older runtimes dump a class list and build a static archive from it
+        private static final boolean DYNAMIC = Runtime.version().feature() >= 13;
+
+        private final Path appsDir;
+        private final InstalledIndex index;
+        private final String javaBin = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        private final Set<String> training = ConcurrentHashMap.newKeySet();
+
+        CdsArchives(Path appsDir, InstalledIndex index) {
+            this.appsDir = appsDir;
+            this.index = index;
+        }
+
+        // Identifies what an archive was built for; a new jar or a different JVM makes it unusable
+        static String archiveKey(InstalledIndex.Record record) {
+            return record.sha256 + "@" + System.getProperty("java.vm.version");
+        }
+
+        Process launch(InstalledIndex.Record record) throws IOException {
+            Path jar = index.jarPath(record.name).toAbsolutePath();
+            List<String> command = new ArrayList<>();
+            command.add(javaBin);
+            if (!ENABLED || record.mainClass.isEmpty()) {
+                command.addAll(List.of("-jar", jar.toString()));
+                return new ProcessBuilder(command).start();
+            }
+
+            // Always -cp <jar> <main>: the archive only maps when the class path matches the training run
+            Path archive = archivePath(record.name);
+            boolean train = false;
+            if (archiveKey(record).equals(record.archiveKey) && Files.isRegularFile(archive)) {
+                command.add("-XX:SharedArchiveFile=" + archive);
+                command.add("-Xshare:auto");
+            } else if (training.add(record.name)) {
+                train = true;
+                command.add(DYNAMIC
+                    ? "-XX:ArchiveClassesAtExit=" + scratch(record.name, ".jsa.tmp")
+                    : "-XX:DumpLoadedClassList=" + scratch(record.name, ".classlist"));
+            }
+            command.addAll(List.of("-cp", jar.toString(), record.mainClass));
+
+            Process process;
+            try {
+                process = new ProcessBuilder(command).start();
+            } catch (IOException e) {
+                training.remove(record.name);
+                throw e;
+            }
+            if (train) {
+                process.onExit().thenRunAsync(() -> finishTraining(record));
+            }
+            return process;
+        }
+
+        private void finishTraining(InstalledIndex.Record record) {
+            Path archive = archivePath(record.name);
+            Path tempArchive = scratch(record.name, ".jsa.tmp");
+            Path classList = scratch(record.name, ".classlist");
+            try {
+                if (!DYNAMIC && Files.size(classList) > 0) {
+                    Path jar = index.jarPath(record.name).toAbsolutePath();
+                    Process dump = new ProcessBuilder(javaBin, "-Xshare:dump", "-XX:SharedClassListFile=" + classList,
+                        "-XX:SharedArchiveFile=" + tempArchive, "-cp", jar.toString())
+                        .redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+                    if (dump.waitFor() != 0) {
+                        throw new IOException("-Xshare:dump exited with " + dump.exitValue());
+                    }
+                }
+                if (Files.exists(tempArchive) && Files.size(tempArchive) > 0) {
+                    Files.move(tempArchive, archive, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    // Ignored by the index if the jar was replaced while the training run was open
+                    index.setArchiveKey(record.name, record.sha256, archiveKey(record));
+                }
+            } catch (NoSuchFileException e) {
+                // The app exited before the JVM could write anything; the next launch trains again
+            } catch (IOException e) {
+                System.err.println("Could not build CDS archive for " + record.name + ": " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                training.remove(record.name);
+                try {
+                    Files.deleteIfExists(tempArchive);
+                    Files.deleteIfExists(classList);
+                } catch (IOException e) {
+                    // Overwritten by the next training run
+                }
+            }
+        }
+
+        Path archivePath(String name) {
+            return appsDir.resolve(name + ".jsa").toAbsolutePath();
+        }
+
+        private Path scratch(String name, String suffix) {
+            return appsDir.resolve(name + suffix).toAbsolutePath();
+        }
+    }
+
+    // Optional pool of idle, pre-started JVMs that each go on to run one app. Enabled with
+    // -Ddja.pool.size=N; a launch hands the jar and main class to a ready worker over a loopback socket,
+    // so the click pays only for loading the app. Workers idle for -Ddja.pool.idleSeconds (default 600)
+    // are reaped, and the pool only refills after the next launch, so an unused pool costs no memory.
+    private static final class WarmPool {
+        private static final long START_DELAY_MS = 5000;
+        // Replacements wait until the app just launched is past its own startup
+        private static final long REFILL_DELAY_MS = 3000;
+        private static final int HELLO_TIMEOUT_MS = 5000;
+
+        private final int size;
+        private final long idleMillis;
+        private final String token;
+        private final LinkedBlockingDeque<Standby> ready = new LinkedBlockingDeque<>();
+        // Spawned workers that have not said hello yet, by pid
+        private final Map<Long, Process> starting = new HashMap<>();
+        private ServerSocket server;
+        private ScheduledExecutorService scheduler;
+
+        // A connected worker waiting for its app
+        private static final class Standby {
+            final Process process;
+            final Socket socket;
+            final long readySince = System.currentTimeMillis();
+
+            Standby(Process process, Socket socket) {
+                this.process = process;
+                this.socket = socket;
+            }
+
+            void run(Path jar, String mainClass) throws IOException {
+                try (Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+                    out.write("RUN " + mainClass + "\t" + jar.toAbsolutePath() + "\n");
+                }
+            }
+
+            void close() {
+                // The worker sees end-of-stream and exits on its own; destroy is the backstop
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // Already gone
+                }
+                process.destroy();
+            }
+        }
+
+        WarmPool(int size, long idleMillis) {
+            this.size = size;
+            this.idleMillis = idleMillis;
+            byte[] secret = new byte[16];
+            new java.security.SecureRandom().nextBytes(secret);
+            this.token = Digests.hex(secret);
+        }
+
+        static WarmPool fromSystemProperties() {
+            return new WarmPool(Math.max(0, Integer.getInteger("dja.pool.size", 0)),
+                TimeUnit.SECONDS.toMillis(Long.getLong("dja.pool.idleSeconds", 600)));
+        }
+
+        boolean isEnabled() {
+            return size > 0;
+        }
+
+        synchronized void start() throws IOException {
+            if (!isEnabled() || server != null) {
+                return;
+            }
+            server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            Thread acceptor = new Thread(this::acceptLoop, "warm-pool-acceptor");
+            acceptor.setDaemon(true);
+            acceptor.start();
+            scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "warm-pool");
+                thread.setDaemon(true);
+                return thread;
+            });
+            // Let the dashboard finish starting before competing with it for CPU
+            scheduler.schedule(this::refill, START_DELAY_MS, TimeUnit.MILLISECONDS);
+            long period = Math.max(1000, idleMillis / 4);
+            scheduler.scheduleWithFixedDelay(this::reapIdle, period, period, TimeUnit.MILLISECONDS);
+        }
+
+        // Hands the app to a ready worker and returns its process, or null if the caller should launch cold
+        Process launch(Path jar, String mainClass) {
+            synchronized (this) {
+                if (scheduler == null) {
+                    return null;
+                }
+            }
+            try {
+                for (Standby standby = ready.pollFirst(); standby != null; standby = ready.pollFirst()) {
+                    try {
+                        standby.run(jar, mainClass);
+                        return standby.process;
+                    } catch (IOException e) {
+                        // Died while idle; try the next one
+                        standby.close();
+                    }
+                }
+                return null;
+            } finally {
+                scheduler.schedule(this::refill, REFILL_DELAY_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private synchronized void refill() {
+            String javaBin = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+            String classes;
+            try {
+                classes = Paths.get(WarmPool.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+            } catch (URISyntaxException e) {
+                throw new IllegalStateException(e);
+            }
+            while (ready.size() + starting.size() < size) {
+                try {
+                    Process process = new ProcessBuilder(javaBin, "-cp", classes, "DJA$PoolWorker",
+                        String.valueOf(server.getLocalPort()), token).inheritIO().start();
+                    long pid = process.pid();
+                    starting.put(pid, process);
+                    process.onExit().thenRun(() -> forget(pid, process));
+                } catch (IOException e) {
+                    System.err.println("Could not start a standby JVM: " + e.getMessage());
+                    return;
+                }
+            }
+        }
+
+        private synchronized void forget(long pid, Process process) {
+            starting.remove(pid, process);
+            ready.removeIf(standby -> standby.process == process);
+        }
+
+        private void acceptLoop() {
+            while (!server.isClosed()) {
+                Socket socket;
+                try {
+                    socket = server.accept();
+                } catch (IOException e) {
+                    return;
+                }
+                try {
+                    socket.setSoTimeout(HELLO_TIMEOUT_MS);
+                    BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                        StandardCharsets.UTF_8));
+                    String[] hello = String.valueOf(in.readLine()).split(" ");
+                    // Anything local can connect; only workers we spawned know the token
+                    boolean ours = hello.length == 3 && hello[0].equals("HELLO") && MessageDigest.isEqual(
+                        hello[1].getBytes(StandardCharsets.US_ASCII), token.getBytes(StandardCharsets.US_ASCII));
+                    synchronized (this) {
+                        Process process = ours ? starting.remove(Long.parseLong(hello[2])) : null;
+                        if (process == null) {
+                            socket.close();
+                            continue;
+                        }
+                        socket.setSoTimeout(0);
+                        ready.addLast(new Standby(process, socket));
+                    }
+                } catch (IOException | NumberFormatException e) {
+                    try {
+                        socket.close();
+                    } catch (IOException ignored) {
+                        // Nothing more to release
+                    }
+                }
+            }
+        }
+
+        private void reapIdle() {
+            long cutoff = System.currentTimeMillis() - idleMillis;
+            for (Standby standby : ready) {
+                if (standby.readySince < cutoff && ready.remove(standby)) {
+                    standby.close();
+                }
+            }
+        }
+    }
+
+    // Bootstrap main of a WarmPool worker. It registers with the dashboard, loads the classes most apps
+    // need, then blocks until it is handed an app or the dashboard goes away. The app gets its own
+    // class loader over the platform loader, so none of the dashboard's classes are visible to it.
+    private static final class PoolWorker {
+        private static final String[] PRELOAD = {
+            "javax.swing.JFrame", "javax.swing.JPanel", "javax.swing.JButton", "javax.swing.JLabel",
+            "javax.swing.JTextField", "javax.swing.JScrollPane", "javax.swing.UIManager", "java.awt.BorderLayout",
+            "java.awt.GridBagLayout", "java.awt.event.ActionListener"
+        };
+
+        public static void main(String[] args) throws Exception {
+            Socket socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(args[0]));
+            Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+            out.write("HELLO " + args[1] + " " + ProcessHandle.current().pid() + "\n");
+            out.flush();
+
+            // Loaded but not initialized, so no toolkit or display connection is opened on the app's behalf
+            ClassLoader platform = ClassLoader.getPlatformClassLoader();
+            for (String name : PRELOAD) {
+                Class.forName(name, false, platform);
+            }
+
+            String command = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))
+                .readLine();
+            socket.close();
+            if (command == null || !command.startsWith("RUN ")) {
+                System.exit(0);
+            }
+            String[] parts = command.substring("RUN ".length()).split("\t", 2);
+            String mainClass = parts[0];
+            String jar = parts[1];
+
+            URLClassLoader loader = new URLClassLoader(new URL[] { Paths.get(jar).toUri().toURL() }, platform);
+            System.setProperty("java.class.path", jar);
+            Thread.currentThread().setContextClassLoader(loader);
+            Class.forName(mainClass, true, loader).getMethod("main", String[].class).invoke(null, (Object) new String[0]);
+        }
+    }
+
+    // Measures launch-to-first-window of an installed app with and without a CDS archive:
+    //   java -cp "src:lib/json.jar" 'DJA$LaunchProbe' installed_apps/<app>.jar [runs]
+    // Each run starts the app behind a wrapper main that prints a marker when its first window opens.
+    // The archive is trained into a scratch file, so the app's own <name>.jsa is left alone.
+    private static final class LaunchProbe {
+        private static final String MARKER = "DJA-FIRST-WINDOW";
+        private static final long TRAINING_SETTLE_MS = 3000;
+
+        public static void main(String[] args) throws Exception {
+            if (args.length == 3 && args[0].equals("--child")) {
+                runChild(args[1], Long.parseLong(args[2]));
+                return;
+            }
+            if (args.length < 1 || !CdsArchives.DYNAMIC) {
+                System.err.println(args.length < 1 ? "usage: DJA$LaunchProbe <app.jar> [runs]"
+                    : "LaunchProbe needs JDK 13 or newer for dynamic archives");
+                System.exit(2);
+            }
+            Path jar = Paths.get(args[0]).toAbsolutePath();
+            int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+            String mainClass;
+            try (java.util.jar.JarFile jarFile = new java.util.jar.JarFile(jar.toFile())) {
+                java.util.jar.Manifest manifest = jarFile.getManifest();
+                mainClass = manifest != null ? manifest.getMainAttributes().getValue(java.util.jar.Attributes.Name.MAIN_CLASS) : null;
+            }
+            if (mainClass == null) {
+                System.err.println(jar.getFileName() + " has no Main-Class");
+                System.exit(2);
+            }
+
+            Path archive = Files.createTempFile("dja-probe", ".jsa");
+            try {
+                Files.delete(archive);
+                long training = firstWindowMillis(jar, mainClass, List.of("-XX:ArchiveClassesAtExit=" + archive),
+                    TRAINING_SETTLE_MS);
+                System.out.printf("training run: %d ms, archive %d KB%n", training, Files.size(archive) / 1024);
+
+                long[] plain = new long[runs];
+                long[] archived = new long[runs];
+                // Interleaved so drift in machine load hits both variants alike
+                for (int i = 0; i < runs; i++) {
+                    plain[i] = firstWindowMillis(jar, mainClass, List.of(), -1);
+                    archived[i] = firstWindowMillis(jar, mainClass, List.of("-XX:SharedArchiveFile=" + archive), -1);
+                }
+                report("without archive", plain);
+                report("with archive", archived);
+            } finally {
+                Files.deleteIfExists(archive);
+            }
+        }
+
+        private static void report(String label, long[] millis) {
+            long[] sorted = millis.clone();
+            Arrays.sort(sorted);
+            System.out.printf("%-16s median %5d ms, best %5d ms over %d runs%n", label, sorted[sorted.length / 2],
+                sorted[0], sorted.length);
+        }
+
+        // Wall time from process start to the marker; with exitAfterMs >= 0 the app exits by itself after
+        // that long, otherwise it is killed as soon as the window is up
+        private static long firstWindowMillis(Path jar, String mainClass, List<String> jvmFlags, long exitAfterMs)
+                throws IOException, InterruptedException {
+            List<String> command = new ArrayList<>();
+            command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+            command.addAll(jvmFlags);
+            // Appending our own classes keeps the training class path a prefix of every later run's
+            String probeClasses = Paths.get(URI.create(LaunchProbe.class.getProtectionDomain().getCodeSource()
+                .getLocation().toString())).toString();
+            command.addAll(List.of("-cp", jar + File.pathSeparator + probeClasses, "DJA$LaunchProbe", "--child",
+                mainClass, String.valueOf(exitAfterMs)));
+
+            long start = System.nanoTime();
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            long elapsed = -1;
+            try (BufferedReader br = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    if (elapsed < 0 && line.startsWith(MARKER)) {
+                        elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                        if (exitAfterMs < 0) {
+                            process.destroy();
+                        }
+                    }
+                }
+            } finally {
+                if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            }
+            if (elapsed < 0) {
+                throw new IOException(mainClass + " exited without opening a window");
+            }
+            return elapsed;
+        }
+
+        private static void runChild(String mainClass, long exitAfterMs) throws Exception {
+            AtomicBoolean reported = new AtomicBoolean();
+            Toolkit.getDefaultToolkit().addAWTEventListener(event -> {
+                if (event.getID() == java.awt.event.WindowEvent.WINDOW_OPENED && reported.compareAndSet(false, true)) {
+                    System.out.println(MARKER);
+                    System.out.flush();
+                    if (exitAfterMs >= 0) {
+                        // Let the app finish painting so the classes it needs for that are archived too
+                        Thread exit = new Thread(() -> {
+                            try {
+                                Thread.sleep(exitAfterMs);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                            System.exit(0);
+                        });
+                        exit.setDaemon(true);
+                        exit.start();
+                    }
+                }
+            }, AWTEvent.WINDOW_EVENT_MASK);
+            Class.forName(mainClass).getMethod("main", String[].class).invoke(null, (Object) new String[0]);
+        }
+    }
+
+    // Watches a directory and reports which *.jar files changed, in batches that close once the directory
+    // has been quiet for a debounce window; a copy or an install's rename sequence becomes one update.
+    // A null batch means the platform dropped events and the caller should rescan everything.
+    private static final class JarWatcher implements Runnable {
+        private static final long DEBOUNCE_MS = 250;
+
+        private final Path dir;
+        private final Consumer<Set<String>> onBatch;
+
+        JarWatcher(Path dir, Consumer<Set<String>> onBatch) {
+            this.dir = dir;
+            this.onBatch = onBatch;
+        }
+
+        void start() {
+            Thread thread = new Thread(this, "installed-apps-watcher");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            thread.start();
+        }
+
+        @Override
+        public void run() {
+            try (WatchService watcher = dir.getFileSystem().newWatchService()) {
+                Files.createDirectories(dir);
+                dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+
+                Set<String> names = new TreeSet<>();
+                boolean overflow = false;
+                long lastEvent = 0;
+                while (true) {
+                    WatchKey key;
+                    if (names.isEmpty() && !overflow) {
+                        key = watcher.take();
+                    } else {
+                        long quietFor = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastEvent);
+                        key = watcher.poll(Math.max(1, DEBOUNCE_MS - quietFor), TimeUnit.MILLISECONDS);
+                    }
+                    if (key == null) {
+                        onBatch.accept(overflow ? null : Collections.unmodifiableSet(names));
+                        names = new TreeSet<>();
+                        overflow = false;
+                        continue;
+                    }
+
+                    // Temp files (.download, .patched, index.dat.tmp) churn constantly and do not extend the window
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            overflow = true;
+                            lastEvent = System.nanoTime();
+                            continue;
+                        }
+                        String fileName = event.context().toString();
+                        if (fileName.endsWith(".jar")) {
+                            names.add(fileName.substring(0, fileName.length() - ".jar".length()));
+                            lastEvent = System.nanoTime();
+                        }
+                    }
+                    if (!key.reset()) {
+                        // Directory deleted or unmounted; nothing more will arrive on this key
+                        onBatch.accept(null);
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                System.err.println("Not watching " + dir + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // Binary patches between two builds of a file: a stream of COPY ranges out of the installed file and
+    // literal DATA runs. Jars are matched a zip record at a time so unchanged entries cost a few bytes and
+    // the result is byte-identical to the published jar; anything else is matched by rolling block hash.
+    // Generate with: java -cp "src:lib/json.jar" 'DJA$DeltaPatch' <old> <new> <patch>
+    private static final class DeltaPatch {
+        private static final int MAGIC = 0x444A4150; // "DJAP"
+        private static final int FORMAT_VERSION = 1;
+        private static final int OP_END = 0;
+        private static final int OP_COPY = 1;
+        private static final int OP_DATA = 2;
+        private static final int BLOCK_SIZE = 2048;
+        private static final int MAX_LITERAL = 1024 * 1024;
+
+        public static void main(String[] args) throws IOException {
+            if (args.length != 3) {
+                System.err.println("usage: DJA$DeltaPatch <old file> <new file> <patch file>");
+                System.exit(2);
+            }
+            Path source = Paths.get(args[0]);
+            Path target = Paths.get(args[1]);
+            Path patch = Paths.get(args[2]);
+            long start = System.nanoTime();
+            char mode = create(source, target, patch);
+            long patchSize = Files.size(patch);
+            long targetSize = Files.size(target);
+            System.out.printf("%s patch: %d bytes for a %d byte target (%.1f%%) in %d ms%n",
+                mode == 'J' ? "jar" : "byte", patchSize, targetSize,
+                targetSize == 0 ? 0.0 : 100.0 * patchSize / targetSize,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+            // Round-trip before anyone publishes it
+            Path check = Files.createTempFile("dja-patch", ".check");
+            try {
+                String rebuilt = apply(source, patch, check);
+                System.out.println("verified, target sha256 " + rebuilt);
+                System.out.println("catalog entry: \"patches\": { \"<old version>\": { \"url\": \"<patch url>\", \"sha256\": \""
+                    + Digests.sha256(patch) + "\" } }");
+            } finally {
+                Files.deleteIfExists(check);
+            }
+        }
+
+        // Writes a patch turning source into target and returns its mode, 'J' (zip records) or 'B' (bytes)
+        static char create(Path source, Path target, Path patch) throws IOException {
+            byte[] old = Files.readAllBytes(source);
+            byte[] updated = Files.readAllBytes(target);
+            List<ZipRecord> oldRecords = ZipRecord.scan(old);
+            List<ZipRecord> newRecords = oldRecords != null ? ZipRecord.scan(updated) : null;
+            char mode = newRecords != null ? 'J' : 'B';
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(patch)))) {
+                out.writeInt(MAGIC);
+                out.writeByte(FORMAT_VERSION);
+                out.writeByte(mode);
+                out.writeLong(old.length);
+                out.write(Digests.newSha256().digest(old));
+                out.writeLong(updated.length);
+                out.write(Digests.newSha256().digest(updated));
+
+                java.util.zip.DeflaterOutputStream deflated = new java.util.zip.DeflaterOutputStream(out,
+                    new java.util.zip.Deflater(java.util.zip.Deflater.BEST_COMPRESSION));
+                OpWriter ops = new OpWriter(new DataOutputStream(deflated));
+                Map<Integer, List<Integer>> blocks = indexBlocks(old);
+                if (mode == 'J') {
+                    diffRecords(old, oldRecords, updated, newRecords, blocks, ops);
+                } else {
+                    diffBytes(old, blocks, updated, 0, updated.length, ops);
+                }
+                ops.finish();
+                deflated.finish();
+            }
+            return mode;
+        }
+
+        // Rebuilds the target from source into out, verifying both ends; returns the hex SHA-256 of the result
+        static String apply(Path source, Path patch, Path out) throws IOException {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(patch)));
+                 FileChannel base = FileChannel.open(source, StandardOpenOption.READ)) {
+                if (in.readInt() != MAGIC || in.readUnsignedByte() != FORMAT_VERSION) {
+                    throw new IOException("Not a DJA patch: " + patch);
+                }
+                in.readUnsignedByte(); // mode; the op stream is the same for both
+                long sourceSize = in.readLong();
+                byte[] sourceHash = new byte[32];
+                in.readFully(sourceHash);
+                long targetSize = in.readLong();
+                byte[] targetHash = new byte[32];
+                in.readFully(targetHash);
+
+                if (base.size() != sourceSize || !Digests.hex(sourceHash).equals(Digests.sha256(source))) {
+                    throw new IOException("Patch was built for a different version of " + source.getFileName());
+                }
+
+                MessageDigest digest = Digests.newSha256();
+                DataInputStream ops = new DataInputStream(new BufferedInputStream(new java.util.zip.InflaterInputStream(in)));
+                byte[] buffer = new byte[64 * 1024];
+                long written = 0;
+                try (OutputStream target = new java.security.DigestOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(out)), digest)) {
+                    for (int op = ops.readUnsignedByte(); op != OP_END; op = ops.readUnsignedByte()) {
+                        if (op == OP_COPY) {
+                            long position = ops.readLong();
+                            long length = ops.readLong();
+                            if (position < 0 || length < 0 || position + length > sourceSize) {
+                                throw new IOException("Corrupt patch: copy outside the source file");
+                            }
+                            for (long done = 0; done < length; ) {
+                                int n = base.read(ByteBuffer.wrap(buffer, 0, (int) Math.min(buffer.length, length - done)),
+                                    position + done);
+                                if (n < 0) {
+                                    throw new EOFException("Source file shrank while patching");
+                                }
+                                target.write(buffer, 0, n);
+                                done += n;
+                            }
+                            written += length;
+                        } else if (op == OP_DATA) {
+                            int length = ops.readInt();
+                            for (int done = 0; done < length; ) {
+                                int n = Math.min(buffer.length, length - done);
+                                ops.readFully(buffer, 0, n);
+                                target.write(buffer, 0, n);
+                                done += n;
+                            }
+                            written += length;
+                        } else {
+                            throw new IOException("Corrupt patch: unknown op " + op);
+                        }
+                    }
+                }
+
+                byte[] actual = digest.digest();
+                if (written != targetSize || !MessageDigest.isEqual(actual, targetHash)) {
+                    throw new IOException("Patched " + source.getFileName() + " failed verification");
+                }
+                return Digests.hex(actual);
+            } catch (IOException e) {
+                Files.deleteIfExists(out);
+                throw e;
+            }
+        }
+
+        // Unchanged records are copied whole; changed ones and the central directory fall back to byte matching
+        private static void diffRecords(byte[] old, List<ZipRecord> oldRecords, byte[] updated, List<ZipRecord> newRecords,
+                                        Map<Integer, List<Integer>> blocks, OpWriter ops) throws IOException {
+            Map<String, ZipRecord> byName = new HashMap<>();
+            for (ZipRecord record : oldRecords) {
+                byName.put(record.name, record);
+            }
+            int position = 0;
+            for (ZipRecord record : newRecords) {
+                ZipRecord previous = byName.get(record.name);
+                if (previous != null && previous.crc == record.crc && previous.length == record.length
+                        && Arrays.equals(old, previous.offset, previous.offset + previous.length,
+                                         updated, record.offset, record.offset + record.length)) {
+                    diffBytes(old, blocks, updated, position, record.offset, ops);
+                    ops.copy(previous.offset, previous.length);
+                    position = record.offset + record.length;
+                }
+            }
+            diffBytes(old, blocks, updated, position, updated.length, ops);
+        }
+
+        // Weak hash of every aligned source block to the offsets that produce it
+        private static Map<Integer, List<Integer>> indexBlocks(byte[] source) {
+            Map<Integer, List<Integer>> blocks = new HashMap<>();
+            for (int offset = 0; offset + BLOCK_SIZE <= source.length; offset += BLOCK_SIZE) {
+                blocks.computeIfAbsent(weakHash(source, offset), key -> new ArrayList<>(1)).add(offset);
+            }
+            return blocks;
+        }
+
+        // rsync-style matching of target[from, to) against the indexed blocks of source
+        private static void diffBytes(byte[] source, Map<Integer, List<Integer>> blocks, byte[] target, int from, int to,
+                                      OpWriter ops) throws IOException {
+            if (to - from < BLOCK_SIZE || blocks.isEmpty()) {
+                ops.literal(target, from, to - from);
+                return;
+            }
+
+            int literalStart = from;
+            int i = from;
+            int a = 0;
+            int b = 0;
+            boolean primed = false;
+            while (i + BLOCK_SIZE <= to) {
+                if (!primed) {
+                    a = 0;
+                    b = 0;
+                    for (int k = 0; k < BLOCK_SIZE; k++) {
+                        int v = target[i + k] & 0xff;
+                        a += v;
+                        b += (BLOCK_SIZE - k) * v;
+                    }
+                    primed = true;
+                }
+                int match = -1;
+                List<Integer> candidates = blocks.get((a & 0xffff) | (b << 16));
+                if (candidates != null) {
+                    for (int candidate : candidates) {
+                        if (Arrays.equals(source, candidate, candidate + BLOCK_SIZE, target, i, i + BLOCK_SIZE)) {
+                            match = candidate;
+                            break;
+                        }
+                    }
+                }
+                if (match >= 0) {
+                    int length = BLOCK_SIZE;
+                    while (i + length < to && match + length < source.length && target[i + length] == source[match + length]) {
+                        length++;
+                    }
+                    ops.literal(target, literalStart, i - literalStart);
+                    ops.copy(match, length);
+                    i += length;
+                    literalStart = i;
+                    primed = false;
+                } else {
+                    if (i + BLOCK_SIZE < to) {
+                        int out = target[i] & 0xff;
+                        int in = target[i + BLOCK_SIZE] & 0xff;
+                        a += in - out;
+                        b += a - BLOCK_SIZE * out;
+                    }
+                    i++;
+                }
+            }
+            ops.literal(target, literalStart, to - literalStart);
+        }
+
+        private static int weakHash(byte[] data, int offset) {
+            int a = 0;
+            int b = 0;
+            for (int k = 0; k < BLOCK_SIZE; k++) {
+                int v = data[offset + k] & 0xff;
+                a += v;
+                b += (BLOCK_SIZE - k) * v;
+            }
+            return (a & 0xffff) | (b << 16);
+        }
+
+        // Coalesces adjacent copies and buffers literals so the op stream stays short
+        private static final class OpWriter {
+            private final DataOutputStream out;
+            private final ByteArrayOutputStream literal = new ByteArrayOutputStream();
+            private long copyPosition = -1;
+            private long copyLength;
+
+            OpWriter(DataOutputStream out) {
+                this.out = out;
+            }
+
+            void copy(long position, long length) throws IOException {
+                flushLiteral();
+                if (copyPosition >= 0 && copyPosition + copyLength == position) {
+                    copyLength += length;
+                    return;
+                }
+                flushCopy();
+                copyPosition = position;
+                copyLength = length;
+            }
+
+            void literal(byte[] data, int offset, int length) throws IOException {
+                if (length == 0) {
+                    return;
+                }
+                flushCopy();
+                literal.write(data, offset, length);
+                if (literal.size() >= MAX_LITERAL) {
+                    flushLiteral();
+                }
+            }
+
+            void finish() throws IOException {
+                flushCopy();
+                flushLiteral();
+                out.writeByte(OP_END);
+                out.flush();
+            }
+
+            private void flushCopy() throws IOException {
+                if (copyPosition >= 0) {
+                    out.writeByte(OP_COPY);
+                    out.writeLong(copyPosition);
+                    out.writeLong(copyLength);
+                    copyPosition = -1;
+                }
+            }
+
+            private void flushLiteral() throws IOException {
+                if (literal.size() > 0) {
+                    out.writeByte(OP_DATA);
+                    out.writeInt(literal.size());
+                    literal.writeTo(out);
+                    literal.reset();
+                }
+            }
+        }
+
+        // Extent of one local file record (header, data and any descriptor) inside a zip
+        private static final class ZipRecord {
+            final String name;
+            final long crc;
+            final int offset;
+            final int length;
+
+            ZipRecord(String name, long crc, int offset, int length) {
+                this.name = name;
+                this.crc = crc;
+                this.offset = offset;
+                this.length = length;
+            }
+
+            // Records in file order, or null when data is not a plain (non-zip64) zip
+            static List<ZipRecord> scan(byte[] data) {
+                int end = -1;
+                for (int i = data.length - 22; i >= Math.max(0, data.length - 22 - 0xffff); i--) {
+                    if (readInt(data, i) == 0x06054b50) {
+                        end = i;
+                        break;
+                    }
+                }
+                if (end < 0) {
+                    return null;
+                }
+                int count = readShort(data, end + 10);
+                long directory = readInt(data, end + 16) & 0xffffffffL;
+                if (count == 0xffff || directory >= end) {
+                    return null;
+                }
+
+                List<String> names = new ArrayList<>(count);
+                List<long[]> entries = new ArrayList<>(count);
+                int p = (int) directory;
+                for (int n = 0; n < count; n++) {
+                    if (p + 46 > end || readInt(data, p) != 0x02014b50) {
+                        return null;
+                    }
+                    int nameLength = readShort(data, p + 28);
+                    int extraLength = readShort(data, p + 30);
+                    int commentLength = readShort(data, p + 32);
+                    long localOffset = readInt(data, p + 42) & 0xffffffffL;
+                    if (localOffset >= directory) {
+                        return null;
+                    }
+                    names.add(new String(data, p + 46, nameLength, StandardCharsets.UTF_8));
+                    entries.add(new long[] { localOffset, readInt(data, p + 16) & 0xffffffffL, n });
+                    p += 46 + nameLength + extraLength + commentLength;
+                }
+
+                entries.sort(Comparator.comparingLong(entry -> entry[0]));
+                List<ZipRecord> records = new ArrayList<>(count);
+                for (int n = 0; n < entries.size(); n++) {
+                    long[] entry = entries.get(n);
+                    long next = n + 1 < entries.size() ? entries.get(n + 1)[0] : directory;
+                    records.add(new ZipRecord(names.get((int) entry[2]), entry[1], (int) entry[0], (int) (next - entry[0])));
+                }
+                return records;
+            }
+
+            private static int readShort(byte[] data, int at) {
+                return (data[at] & 0xff) | (data[at + 1] & 0xff) << 8;
+            }
+
+            private static int readInt(byte[] data, int at) {
+                return readShort(data, at) | readShort(data, at + 2) << 16;
+            }
+        }
+    }
+
+    // Compiles dashboard sources in-process; class files stay in memory until the whole unit compiles
+    private static final class CompilerService {
+        // One compiler message, independent of whether javax.tools or an external javac produced it
+        static final class Problem {
+            final String kind;
+            final String file;
+            final long line;
+            final long column;
+            final String message;
+
+            Problem(String kind, String file, long line, long column, String message) {
+                this.kind = kind;
+                this.file = file;
+                this.line = line;
+                this.column = column;
+                this.message = message;
+            }
+
+            boolean isError() {
+                return kind.equals("error");
+            }
+
+            @Override
+            public String toString() {
+                StringBuilder text = new StringBuilder(file);
+                if (line > 0) {
+                    text.append(':').append(line);
+                    if (column > 0) {
+                        text.append(':').append(column);
+                    }
+                }
+                return text.append(": ").append(kind).append(": ").append(message).toString();
+            }
+        }
+
+        static final class Result {
+            final boolean success;
+            final List<Problem> problems;
+            final long elapsedMillis;
+            final boolean inProcess;
+
+            Result(boolean success, List<Problem> problems, long elapsedMillis, boolean inProcess) {
+                this.success = success;
+                this.problems = Collections.unmodifiableList(problems);
+                this.elapsedMillis = elapsedMillis;
+                this.inProcess = inProcess;
+            }
+
+            String errors() {
+                StringBuilder text = new StringBuilder();
+                for (Problem problem : problems) {
+                    if (problem.isError()) {
+                        text.append(problem).append('\n');
+                    }
+                }
+                return text.toString();
+            }
+        }
+
+        private static final java.util.regex.Pattern JAVAC_LINE =
+            java.util.regex.Pattern.compile("^(.+?):(\\d+): (error|warning): (.*)$");
+
+        private final JavaCompiler compiler = locateCompiler();
+        // Reused so the classpath jars are opened and indexed once per process, not once per compile
+        private StandardJavaFileManager standardFiles;
+
+        private static JavaCompiler locateCompiler() {
+            try {
+                return ToolProvider.getSystemJavaCompiler();
+            } catch (LinkageError e) {
+                // Runtime was linked without the java.compiler module
+                return null;
+            }
+        }
+
+        boolean isInProcess() {
+            return compiler != null;
+        }
+
+        synchronized Result compile(String fileName, String source, List<Path> classpath, Path outputDir)
+                throws IOException {
+            long start = System.nanoTime();
+            Files.createDirectories(outputDir);
+            if (compiler == null) {
+                return compileExternal(fileName, source, classpath, outputDir, start);
+            }
+
+            if (standardFiles == null) {
+                standardFiles = compiler.getStandardFileManager(null, Locale.ROOT, StandardCharsets.UTF_8);
+            }
+            standardFiles.setLocationFromPaths(StandardLocation.CLASS_PATH, classpath);
+
+            Map<String, ByteArrayOutputStream> classes = new LinkedHashMap<>();
+            JavaFileManager files = new ForwardingJavaFileManager<StandardJavaFileManager>(standardFiles) {
+                @Override
+                public JavaFileObject getJavaFileForOutput(Location location, String className,
+                                                           JavaFileObject.Kind kind, FileObject sibling) {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    classes.put(className, bytes);
+                    URI uri = URI.create("mem:///" + className.replace('.', '/') + kind.extension);
+                    return new SimpleJavaFileObject(uri, kind) {
+                        @Override
+                        public OutputStream openOutputStream() {
+                            return bytes;
+                        }
+                    };
+                }
+            };
+            // Named after the real file so javac accepts the public class, whatever the download was saved as
+            JavaFileObject unit = new SimpleJavaFileObject(URI.create("string:///" + fileName), JavaFileObject.Kind.SOURCE) {
+                @Override
+                public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                    return source;
+                }
+            };
+
+            DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+            boolean success = compiler.getTask(null, files, diagnostics, List.of("-proc:none"), null, List.of(unit)).call();
+
+            List<Problem> problems = new ArrayList<>();
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                problems.add(new Problem(kindName(diagnostic.getKind()), fileName,
+                    Math.max(diagnostic.getLineNumber(), 0), Math.max(diagnostic.getColumnNumber(), 0),
+                    diagnostic.getMessage(Locale.ROOT)));
+            }
+            if (success) {
+                for (Map.Entry<String, ByteArrayOutputStream> entry : classes.entrySet()) {
+                    Path target = outputDir.resolve(entry.getKey().replace('.', File.separatorChar) + ".class");
+                    Files.createDirectories(target.getParent());
+                    Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+                    Files.write(temp, entry.getValue().toByteArray());
+                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+            return new Result(success, problems, elapsedSince(start), true);
+        }
+
+        private Result compileExternal(String fileName, String source, List<Path> classpath, Path outputDir, long start)
+                throws IOException {
+            Path workDir = Files.createTempDirectory("dja-javac");
+            try {
+                Path sourceFile = workDir.resolve(fileName);
+                Files.writeString(sourceFile, source);
+                Path classesDir = Files.createDirectory(workDir.resolve("classes"));
+
+                Path bundled = Paths.get(System.getProperty("java.home"), "bin", "javac");
+                List<String> command = new ArrayList<>();
+                command.add(Files.isExecutable(bundled) ? bundled.toString() : "javac");
+                command.addAll(List.of("-encoding", "UTF-8", "-proc:none", "-d", classesDir.toString()));
+                if (!classpath.isEmpty()) {
+                    StringJoiner joined = new StringJoiner(File.pathSeparator);
+                    classpath.forEach(path -> joined.add(path.toString()));
+                    command.add("-cp");
+                    command.add(joined.toString());
+                }
+                command.add(sourceFile.toString());
+
+                Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+                List<Problem> problems = new ArrayList<>();
+                StringBuilder output = new StringBuilder();
+                try (BufferedReader br = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                    String line;
+                    while ((line = br.readLine()) != null) {
+                        output.append(line).append('\n');
+                        java.util.regex.Matcher m = JAVAC_LINE.matcher(line);
+                        if (m.matches()) {
+                            problems.add(new Problem(m.group(3), fileName, Long.parseLong(m.group(2)), 0, m.group(4)));
+                        }
+                    }
+                }
+                int exitCode;
+                try {
+                    exitCode = process.waitFor();
+                } catch (InterruptedException e) {
+                    process.destroyForcibly();
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for javac");
+                }
+
+                boolean success = exitCode == 0;
+                if (!success && problems.stream().noneMatch(Problem::isError)) {
+                    // javac failed before reporting anything parseable (missing binary, bad flag): keep its output
+                    problems.add(new Problem("error", fileName, 0, 0, output.toString().trim()));
+                }
+                if (success) {
+                    try (java.util.stream.Stream<Path> compiled = Files.walk(classesDir)) {
+                        for (Path classFile : (Iterable<Path>) compiled.filter(Files::isRegularFile)::iterator) {
+                            Path target = outputDir.resolve(classesDir.relativize(classFile).toString());
+                            Files.createDirectories(target.getParent());
+                            Files.move(classFile, target, StandardCopyOption.REPLACE_EXISTING);
+                        }
+                    }
+                }
+                return new Result(success, problems, elapsedSince(start), false);
+            } finally {
+                try (java.util.stream.Stream<Path> leftovers = Files.walk(workDir)) {
+                    leftovers.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+                }
+            }
+        }
+
+        private static String kindName(Diagnostic.Kind kind) {
+            switch (kind) {
+                case ERROR:
+                    return "error";
+                case WARNING:
+                case MANDATORY_WARNING:
+                    return "warning";
+                default:
+                    return "note";
+            }
+        }
+
+        private static long elapsedSince(long startNanos) {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        }
+    }
+
+    // Command-line front end for scripted installs, e.g. provisioning build agents:
+    //   java -cp "lib/json.jar:src" 'DJA$Cli' [--json] [--offline] <command>
+    //     list                         every catalog app with its installed version and status
+    //     install <app>... [-m file]   install or update the named apps, downloading in parallel
+    //     update --all | <app>...      update installed apps that have a newer catalog version
+    //     verify [<app>...]            re-hash installed jars against the index and the catalog
+    //     rollback <app>...            reinstall each app's previous version from the local store
+    //     store gc                     drop stored versions outside the retention policy
+    //     store export <dir> [--base-url <url>]
+    //                                  write a mirror of the stored jars with its own apps.json
+    // --catalog <url|dir> reads another catalog, such as a mirror, for this run (see dja.catalog).
+    // A manifest names one app per line, optionally pinned as name@version; '#' starts a comment.
+    // Apps are matched by jar name or display name, ignoring case. Results go to stdout as
+    // tab-separated lines, or as one JSON document with --json. Exit status: 0 when everything
+    // succeeded, 1 when some app failed, 2 for usage or catalog errors.
+    // Uses only the Swing-free parts of DJA, so AWT is never initialized and no display is needed.
+    // (From JDK 15 lambdas are hidden nestmates of DJA, so the JVM does load DJA and the JFrame class
+    // hierarchy to resolve the nest, but runs none of their static initializers.)
+    private static final class Cli {
+        private final boolean json;
+        private final boolean offline;
+        private final CatalogRepository catalog = new CatalogRepository(CatalogRepository.configuredUrl(),
+            Paths.get(CACHE_DIR));
+        private final InstalledIndex index = new InstalledIndex(Paths.get(APPS_DIR));
+        private final BlobStore store = BlobStore.fromSystemProperties(Paths.get(APPS_DIR));
+        private final AppInstaller installer = new AppInstaller(new DownloadEngine(), Paths.get(APPS_DIR), index,
+            store);
+
+        private Cli(boolean json, boolean offline) {
+            this.json = json;
+            this.offline = offline;
+        }
+
+        public static void main(String[] args) {
+            Settings.load();
+            List<String> rest = new ArrayList<>(Arrays.asList(args));
+            boolean json = rest.remove("--json");
+            boolean offline = rest.remove("--offline");
+            int catalogOption = rest.indexOf("--catalog");
+            if (catalogOption >= 0 && catalogOption + 1 < rest.size()) {
+                System.setProperty("dja.catalog", rest.get(catalogOption + 1));
+                rest.subList(catalogOption, catalogOption + 2).clear();
+            }
+            if (rest.isEmpty()) {
+                usage();
+            }
+            String command = rest.remove(0);
+            Cli cli = new Cli(json, offline);
+            try {
+                switch (command) {
+                    case "list":
+                        System.exit(cli.list());
+                        break;
+                    case "install":
+                        System.exit(cli.install(rest));
+                        break;
+                    case "update":
+                        System.exit(cli.update(rest));
+                        break;
+                    case "verify":
+                        System.exit(cli.verify(rest));
+                        break;
+                    case "rollback":
+                        System.exit(cli.rollback(rest));
+                        break;
+                    case "store":
+                        System.exit(cli.store(rest));
+                        break;
+                    default:
+                        usage();
+                }
+            } catch (IllegalArgumentException e) {
+                System.err.println(e.getMessage());
+                System.exit(2);
+            } catch (IOException e) {
+                System.err.println("Error: " + e.getMessage());
+                System.exit(2);
+            } catch (InterruptedException e) {
+                System.exit(2);
+            }
+        }
+
+        private static void usage() {
+            System.err.println("usage: DJA$Cli [--json] [--offline] [--catalog <url|dir>] list"
+                + " | install <app>... [-m manifest] | update --all | update <app>... | verify [<app>...]"
+                + " | rollback <app>... | store gc | store export <dir> [--base-url <url>]");
+            System.exit(2);
+        }
+
+        private int list() throws IOException {
+            CatalogSnapshot snapshot = loadCatalog();
+            Map<String, InstalledIndex.Record> installed = installedByName();
+            JSONArray apps = new JSONArray();
+            for (AppEntry app : snapshot.apps) {
+                InstalledIndex.Record record = installed.remove(app.jarBaseName());
+                String version = record != null ? record.version : "";
+                String status = record == null ? "available"
+                    : VersionComparator.isNewer(app.version, record.version) ? "outdated" : "installed";
+                apps.put(new JSONObject().put("app", app.jarBaseName()).put("name", app.displayName())
+                    .put("status", status).put("installed", version).put("available", app.version)
+                    .put("author", app.author));
+            }
+            // Jars that are not (or no longer) in the catalog
+            for (InstalledIndex.Record record : installed.values()) {
+                apps.put(new JSONObject().put("app", record.name).put("name", record.name).put("status", "unlisted")
+                    .put("installed", record.version).put("available", "").put("author", ""));
+            }
+            print("list", "apps", apps, "app", "status", "installed", "available", "name");
+            return 0;
+        }
+
+        private int install(List<String> args) throws IOException, InterruptedException {
+            List<String> requested = new ArrayList<>();
+            for (int i = 0; i < args.size(); i++) {
+                String arg = args.get(i);
+                if (arg.equals("-m") || arg.equals("--manifest")) {
+                    if (++i == args.size()) {
+                        throw new IllegalArgumentException(arg + " needs a file");
+                    }
+                    // The dja launcher changes to the install directory and says where it was called from
+                    String callerDir = System.getenv("DJA_CALLER_DIR");
+                    Path manifest = Paths.get(args.get(i));
+                    requested.addAll(readManifest(callerDir != null ? Paths.get(callerDir).resolve(manifest) : manifest));
+                } else {
+                    requested.add(arg);
+                }
+            }
+            if (requested.isEmpty()) {
+                throw new IllegalArgumentException("install: name at least one app or a manifest");
+            }
+
+            CatalogSnapshot snapshot = loadCatalog();
+            Map<String, InstalledIndex.Record> installed = installedByName();
+            JSONArray results = new JSONArray();
+            Map<String, UpdateJob.Item> items = new LinkedHashMap<>();
+            for (String request : requested) {
+                int at = request.lastIndexOf('@');
+                String name = at > 0 ? request.substring(0, at) : request;
+                String pinned = at > 0 ? request.substring(at + 1) : "";
+                AppEntry app = find(snapshot, name);
+                if (app == null) {
+                    results.put(result(name, "", pinned, "failed", "not in the catalog"));
+                    continue;
+                }
+                InstalledIndex.Record record = installed.get(app.jarBaseName());
+                String from = record != null ? record.version : "";
+                if (!pinned.isEmpty() && !pinned.equals(app.version)) {
+                    results.put(result(app.jarBaseName(), from, pinned, "failed", "catalog has " + app.version));
+                } else if (record != null && !VersionComparator.isNewer(app.version, record.version)) {
+                    results.put(result(app.jarBaseName(), from, app.version, "current", ""));
+                } else {
+                    items.putIfAbsent(app.jarBaseName(), new UpdateJob.Item(app, from));
+                }
+            }
+            return run(new ArrayList<>(items.values()), "install", results);
+        }
+
+        private int update(List<String> args) throws IOException, InterruptedException {
+            if (args.isEmpty()) {
+                throw new IllegalArgumentException("update: use --all or name the apps to update");
+            }
+            CatalogSnapshot snapshot = loadCatalog();
+            List<UpdateJob.Item> outdated = UpdateJob.outdated(index.reconcile(), snapshot.appsByJarName);
+            JSONArray results = new JSONArray();
+            if (args.equals(List.of("--all"))) {
+                return run(outdated, "update", results);
+            }
+            Map<String, InstalledIndex.Record> installed = installedByName();
+            List<UpdateJob.Item> items = new ArrayList<>();
+            for (String name : args) {
+                AppEntry app = find(snapshot, name);
+                InstalledIndex.Record record = app != null ? installed.get(app.jarBaseName()) : installed.get(name);
+                if (record == null) {
+                    results.put(result(name, "", "", "failed", "not installed"));
+                    continue;
+                }
+                UpdateJob.Item item = null;
+                for (UpdateJob.Item candidate : outdated) {
+                    if (candidate.app.jarBaseName().equals(record.name)) {
+                        item = candidate;
+                    }
+                }
+                if (item != null) {
+                    if (!items.contains(item)) {
+                        items.add(item);
+                    }
+                } else {
+                    results.put(result(record.name, record.version, record.version, "current", ""));
+                }
+            }
+            return run(items, "update", results);
+        }
+
+        // Runs the installs as one UpdateJob and reports every item, after the results already decided
+        private int run(List<UpdateJob.Item> items, String command, JSONArray results) throws InterruptedException {
+            UpdateJob job = new UpdateJob(installer, items);
+            Thread cancelOnExit = new Thread(job::cancel, "cli-cancel");
+            Runtime.getRuntime().addShutdownHook(cancelOnExit);
+            job.start();
+            job.await();
+            Runtime.getRuntime().removeShutdownHook(cancelOnExit);
+
+            boolean failed = false;
+            for (int i = 0; i < results.length(); i++) {
+                failed |= results.getJSONObject(i).getString("status").equals("failed");
+            }
+            for (UpdateJob.Item item : items) {
+                String status = item.state == UpdateJob.State.UPDATED
+                    ? (item.fromVersion.isEmpty() ? "installed" : "updated")
+                    : item.state.name().toLowerCase(Locale.ROOT);
+                failed |= item.state != UpdateJob.State.UPDATED;
+                results.put(result(item.app.jarBaseName(), item.fromVersion, item.app.version, status, item.error));
+            }
+            print(command, "results", results, "app", "status", "from", "to", "error");
+            return failed ? 1 : 0;
+        }
+
+        // A jar is ok when it still hashes to what the index recorded at install, opens as a jar, and,
+        // when the catalog publishes a checksum for the installed version, matches that too
+        private int verify(List<String> names) throws IOException {
+            // Checksums are only an extra check here, so any catalog will do, even a stale one
+            CatalogSnapshot snapshot = catalog.loadCached(app -> { });
+            if (!offline) {
+                try {
+                    snapshot = catalog.refresh(app -> { });
+                } catch (IOException e) {
+                    System.err.println("Verifying against the cached catalog: " + e.getMessage());
+                }
+            }
+            Map<String, AppEntry> online = snapshot != null ? snapshot.appsByJarName : Collections.emptyMap();
+            Map<String, InstalledIndex.Record> installed = installedByName();
+            List<String> selected = new ArrayList<>();
+            if (names.isEmpty()) {
+                selected.addAll(installed.keySet());
+            }
+            JSONArray results = new JSONArray();
+            for (String name : names) {
+                AppEntry app = snapshot != null ? find(snapshot, name) : null;
+                String jarName = app != null ? app.jarBaseName() : name;
+                if (installed.containsKey(jarName)) {
+                    selected.add(jarName);
+                } else {
+                    results.put(new JSONObject().put("app", name).put("status", "missing").put("version", "")
+                        .put("sha256", "").put("error", "not installed"));
+                }
+            }
+            boolean failed = results.length() > 0;
+            for (String name : selected) {
+                InstalledIndex.Record record = installed.get(name);
+                String status = "ok";
+                String error = "";
+                String sha256 = "";
+                try {
+                    sha256 = Digests.sha256(index.jarPath(name));
+                    AppEntry app = online.get(name);
+                    if (!sha256.equalsIgnoreCase(record.sha256)) {
+                        status = "corrupt";
+                        error = "changed since it was installed";
+                    } else if (app != null && app.version.equals(record.version) && !app.sha256.isEmpty()
+                            && !app.sha256.equalsIgnoreCase(sha256)) {
+                        status = "mismatch";
+                        error = "catalog checksum for " + app.version + " is " + app.sha256;
+                    } else {
+                        try (java.util.jar.JarFile jar = new java.util.jar.JarFile(index.jarPath(name).toFile())) {
+                            jar.getManifest();
+                        }
+                    }
+                } catch (IOException e) {
+                    status = "invalid";
+                    error = String.valueOf(e.getMessage());
+                }
+                failed |= !status.equals("ok");
+                results.put(new JSONObject().put("app", name).put("status", status).put("version", record.version)
+                    .put("sha256", sha256).put("error", error));
+            }
+            print("verify", "results", results, "app", "status", "version", "sha256", "error");
+            return failed ? 1 : 0;
+        }
+
+        private int rollback(List<String> names) throws IOException {
+            if (names.isEmpty()) {
+                throw new IllegalArgumentException("rollback: name the apps to roll back");
+            }
+            Map<String, InstalledIndex.Record> installed = installedByName();
+            JSONArray results = new JSONArray();
+            boolean failed = false;
+            for (String name : names) {
+                String jarName = name.replaceAll("\\s+", "");
+                for (String candidate : installed.keySet()) {
+                    if (candidate.equalsIgnoreCase(jarName)) {
+                        jarName = candidate;
+                    }
+                }
+                InstalledIndex.Record before = installed.get(jarName);
+                try {
+                    installer.rollback(jarName);
+                    results.put(result(jarName, before.version, index.get(jarName).version, "rolled back", ""));
+                } catch (IOException e) {
+                    failed = true;
+                    results.put(result(jarName, before != null ? before.version : "", "", "failed",
+                        String.valueOf(e.getMessage())));
+                }
+            }
+            print("rollback", "results", results, "app", "status", "from", "to", "error");
+            return failed ? 1 : 0;
+        }
+
+        private int store(List<String> args) throws IOException {
+            if (args.equals(List.of("gc"))) {
+                index.reconcile();
+                long freed = store.gc(index.hashes());
+                if (json) {
+                    System.out.println(new JSONObject().put("command", "store gc").put("freedBytes", freed).toString(2));
+                } else {
+                    System.out.println("freed\t" + freed);
+                }
+                return 0;
+            }
+            if (args.size() >= 2 && args.get(0).equals("export")) {
+                Path dir = Paths.get(args.get(1));
+                String callerDir = System.getenv("DJA_CALLER_DIR");
+                if (callerDir != null) {
+                    dir = Paths.get(callerDir).resolve(dir);
+                }
+                int baseOption = args.indexOf("--base-url");
+                String baseUrl = baseOption >= 0 && baseOption + 1 < args.size() ? args.get(baseOption + 1)
+                    : dir.toAbsolutePath().toUri().toString();
+                if (!offline) {
+                    loadCatalog();
+                }
+                int served = store.export(catalog.cachedJson(), dir, baseUrl);
+                if (json) {
+                    System.out.println(new JSONObject().put("command", "store export").put("dir", dir.toString())
+                        .put("baseUrl", baseUrl).put("apps", served).toString(2));
+                } else {
+                    System.out.println("exported\t" + served + "\t" + dir.resolve("apps.json"));
+                }
+                return 0;
+            }
+            throw new IllegalArgumentException("store: use 'store gc' or 'store export <dir> [--base-url <url>]'");
+        }
+
+        private CatalogSnapshot loadCatalog() throws IOException {
+            if (offline) {
+                CatalogSnapshot cached = catalog.loadCached(app -> { });
+                if (cached == null) {
+                    throw new IOException("no cached catalog; run once without --offline");
+                }
+                return cached;
+            }
+            return catalog.refresh(app -> { });
+        }
+
+        private Map<String, InstalledIndex.Record> installedByName() throws IOException {
+            Map<String, InstalledIndex.Record> installed = new TreeMap<>();
+            for (InstalledIndex.Record record : index.reconcile()) {
+                installed.put(record.name, record);
+            }
+            return installed;
+        }
+
+        private static AppEntry find(CatalogSnapshot snapshot, String name) {
+            AppEntry exact = snapshot.appsByJarName.get(name);
+            if (exact != null) {
+                return exact;
+            }
+            for (AppEntry app : snapshot.apps) {
+                if (app.jarBaseName().equalsIgnoreCase(name) || app.displayName().equalsIgnoreCase(name)) {
+                    return app;
+                }
+            }
+            return null;
+        }
+
+        private static List<String> readManifest(Path file) throws IOException {
+            List<String> names = new ArrayList<>();
+            for (String line : Files.readAllLines(file)) {
+                int comment = line.indexOf('#');
+                String name = (comment >= 0 ? line.substring(0, comment) : line).trim();
+                if (!name.isEmpty()) {
+                    names.add(name);
+                }
+            }
+            return names;
+        }
+
+        private static JSONObject result(String app, String from, String to, String status, String error) {
+            return new JSONObject().put("app", app).put("from", from).put("to", to).put("status", status)
+                .put("error", error);
+        }
+
+        // One JSON document, or one tab-separated line per row with the given columns in order
+        private void print(String command, String key, JSONArray rows, String... columns) {
+            if (json) {
+                System.out.println(new JSONObject().put("command", command).put(key, rows).toString(2));
+                return;
+            }
+            for (int i = 0; i < rows.length(); i++) {
+                JSONObject row = rows.getJSONObject(i);
+                StringJoiner line = new StringJoiner("\t");
+                for (String column : columns) {
+                    line.add(row.optString(column));
+                }
+                System.out.println(line);
+            }
+        }
+    }
+
+    // Performance harness, run with: java -cp "src:lib/json.jar" 'DJA$Bench' <suite|all> [size] [--json file]
+    // With --json every measurement is also written to file as JSON, and
+    // 'DJA$Bench' compare <baseline.json> <current.json> reports how each one moved between two runs.
+    private static final class Bench {
+        private static final int WARMUP_ROUNDS = 3;
+        private static final int MEASURED_ROUNDS = 5;
+        private static final List<String> SUITES = List.of("catalog", "paint", "search", "index", "download");
+        // Smaller changes between two runs are treated as noise by compare
+        private static final double NOISE_PERCENT = 5;
+        private static final JSONArray results = new JSONArray();
+
+        public static void main(String[] args) throws Exception {
+            List<String> positional = new ArrayList<>();
+            Path json = null;
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("--json") && i + 1 < args.length) {
+                    json = Paths.get(args[++i]);
+                } else {
+                    positional.add(args[i]);
+                }
+            }
+            String suite = positional.isEmpty() ? "catalog" : positional.get(0);
+            if (suite.equals("compare")) {
+                if (positional.size() != 3) {
+                    System.err.println("Usage: compare <baseline.json> <current.json>");
+                    System.exit(2);
+                }
+                System.exit(compare(Paths.get(positional.get(1)), Paths.get(positional.get(2))) > 0 ? 1 : 0);
+            }
+            Integer size = positional.size() > 1 ? Integer.valueOf(positional.get(1)) : null;
+            for (String name : suite.equals("all") ? SUITES : List.of(suite)) {
+                run(name, size);
+            }
+            if (json != null) {
+                writeResults(json);
+            }
+        }
+
+        private static void run(String suite, Integer size) throws Exception {
+            switch (suite) {
+                case "catalog":
+                    for (int entries : size != null ? new int[] {size} : new int[] {1_000, 10_000, 100_000}) {
+                        catalog(entries);
+                    }
+                    break;
+                case "paint":
+                    paint(size != null ? size : 2000);
+                    break;
+                case "search":
+                    search(size != null ? size : 100_000);
+                    break;
+                case "index":
+                    index(size != null ? size : 2000);
+                    break;
+                case "download":
+                    download(size != null ? size : 64);
+                    break;
+                default:
+                    System.err.println("Unknown suite: " + suite + " (available: all, compare, "
+                        + String.join(", ", SUITES) + ")");
+                    System.exit(2);
+            }
+        }
+
+        // Compares the old read-everything-then-DOM path with the streaming parser
+        static void catalog(int entries) throws Exception {
+            Path fixture = generateCatalog(entries);
+            try {
+                System.out.printf("catalog fixture: %d entries, %.1f MB%n", entries, Files.size(fixture) / 1048576.0);
+                measure("dom", entries, () -> parseWithDom(fixture));
+                measure("streaming", entries, () -> parseStreaming(fixture));
+            } finally {
+                Files.deleteIfExists(fixture);
+            }
+        }
+
+        // Query latency of the search index, plus the cost of a full build and of a small catalog change
+        static void search(int entries) throws Exception {
+            Path fixture = generateCatalog(entries);
+            List<AppEntry> apps;
+            try (Reader reader = Files.newBufferedReader(fixture, StandardCharsets.UTF_8)) {
+                apps = CatalogSnapshot.read(reader, app -> { }).apps;
+            } finally {
+                Files.deleteIfExists(fixture);
+            }
+
+            long start = System.nanoTime();
+            SearchIndex index = new SearchIndex();
+            index.update(apps);
+            double buildMs = (System.nanoTime() - start) / 1e6;
+            System.out.printf("search index: %d entries, built in %.1f ms%n", entries, buildMs);
+            record("search", "build", "time", buildMs, "ms", true, "entries", entries);
+
+            // One version bump per hundred entries, as a catalog refresh would bring
+            List<AppEntry> changed = new ArrayList<>(apps);
+            for (int i = 0; i < changed.size(); i += 100) {
+                AppEntry app = changed.get(i);
+                changed.set(i, new AppEntry(app.name, app.url, app.icon, app.description, app.version + ".1",
+                    app.author, app.sha256, app.patches));
+            }
+            start = System.nanoTime();
+            index.update(changed);
+            double updateMs = (System.nanoTime() - start) / 1e6;
+            System.out.printf("search index: %d entries changed, updated in %.1f ms%n", (changed.size() + 99) / 100,
+                updateMs);
+            record("search", "update", "time", updateMs, "ms", true, "entries", entries);
+
+            String[] queries = {"gen", "generated 5", "app 4217", "author 13", "synthetc entry", "catalgo", "zzz"};
+            for (String query : queries) {
+                long[] nanos = new long[2000];
+                int results = 0;
+                for (int round = 0; round < 2; round++) {
+                    for (int i = 0; i < nanos.length; i++) {
+                        long before = System.nanoTime();
+                        results = index.search(query, true).size();
+                        nanos[i] = System.nanoTime() - before;
+                    }
+                }
+                Arrays.sort(nanos);
+                double p50 = nanos[nanos.length / 2] / 1e3;
+                double p99 = nanos[nanos.length * 99 / 100] / 1e3;
+                System.out.printf("%-16s p50 %8.1f us   p99 %8.1f us   %6d results%n", "\"" + query + "\"", p50, p99,
+                    results);
+                record("search", "query " + query, "p50", p50, "us", true, "entries", entries);
+                record("search", "query " + query, "p99", p99, "us", true, "entries", entries);
+            }
+        }
+
+        // Writes a synthetic apps.json, including fields the dashboard does not read
+        static Path generateCatalog(int entries) throws IOException {
+            Path fixture = Files.createTempFile("dja-catalog-", ".json");
+            try (Writer out = Files.newBufferedWriter(fixture, StandardCharsets.UTF_8)) {
+                out.write("{\n    \"apps\": [\n");
+                for (int i = 0; i < entries; i++) {
+                    out.write("        {\"name\": \"Generated App " + i + "\", "
+                        + "\"url\": \"https://example.com/apps/GeneratedApp" + i + ".jar\", "
+                        + "\"icon\": \"https://example.com/apps/assets/GeneratedApp" + i + ".png\", "
+                        + "\"description\": \"Synthetic entry number " + i + " used to measure catalog parsing at scale.\", "
+                        + "\"version\": \"" + (1 + i % 7) + "." + (i % 13) + "\", "
+                        + "\"author\": \"Author " + (i % 97) + "\", "
+                        + "\"install\": true, \"delete\": false, "
+                        + "\"tags\": [\"tools\", \"generated\", {\"weight\": " + (i % 5) + "}]}");
+                    out.write(i + 1 < entries ? ",\n" : "\n");
+                }
+                out.write("    ]\n}\n");
+            }
+            return fixture;
+        }
+
+        private static long parseWithDom(Path fixture) throws IOException {
+            try (BufferedReader reader = Files.newBufferedReader(fixture, StandardCharsets.UTF_8)) {
+                StringBuilder jsonContent = new StringBuilder();
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    jsonContent.append(line);
+                }
+                JSONArray apps = new JSONObject(jsonContent.toString()).getJSONArray("apps");
+                long firstEntry = 0;
+                List<AppEntry> entries = new ArrayList<>(apps.length());
+                for (int i = 0; i < apps.length(); i++) {
+                    JSONObject app = apps.getJSONObject(i);
+                    entries.add(new AppEntry(app.getString("name"), app.getString("url"),
+                        app.optString("icon", ""), app.optString("description", ""),
+                        app.getString("version").trim(), app.optString("author", "").trim(),
+                        app.optString("sha256", "").trim(), Collections.emptyMap()));
+                    if (i == 0) {
+                        firstEntry = System.nanoTime();
+                    }
+                }
+                return firstEntry;
+            }
+        }
+
+        private static long parseStreaming(Path fixture) throws IOException {
+            long[] firstEntry = new long[1];
+            try (Reader reader = Files.newBufferedReader(fixture, StandardCharsets.UTF_8)) {
+                CatalogSnapshot.read(reader, app -> {
+                    if (firstEntry[0] == 0) {
+                        firstEntry[0] = System.nanoTime();
+                    }
+                });
+            }
+            return firstEntry[0];
+        }
+
+        // Repaints a screenful of card backgrounds, with hover toggling the button colour
+        static void paint(int frames) {
+            BufferedImage screen = new BufferedImage(1000, 1400, BufferedImage.TYPE_INT_ARGB_PRE);
+            Color card = Color.WHITE;
+            Color button = new Color(48, 63, 159);
+            Color hover = new Color(92, 107, 192);
+            for (int round = 0; round < 2; round++) {
+                boolean measured = round == 1;
+                double direct = paintFrames(screen, frames, (g, y, hovered) -> {
+                    PaintCache.paintShadowDirect(g, 15, y + 15, 950, 240, 10, 0.2f, card);
+                    PaintCache.paintRoundRectDirect(g, 50, y + 190, 880, 45, BUTTON_ARC, hovered ? hover : button);
+                });
+                double cached = paintFrames(screen, frames, (g, y, hovered) -> {
+                    PaintCache.paintShadow(g, 15, y + 15, 950, 240, 10, 0.2f, card);
+                    PaintCache.paintRoundRect(g, 50, y + 190, 880, 45, BUTTON_ARC, hovered ? hover : button);
+                });
+                if (measured) {
+                    System.out.printf("paint direct %8.1f frames/s%n", direct);
+                    System.out.printf("paint cached %8.1f frames/s   (%s)%n", cached, PaintCache.stats());
+                    record("paint", "direct", "throughput", direct, "frames/s", false, "frames", frames);
+                    record("paint", "cached", "throughput", cached, "frames/s", false, "frames", frames);
+                }
+            }
+        }
+
+        private interface CardPainter {
+            void paint(Graphics2D g, int y, boolean hovered);
+        }
+
+        private static double paintFrames(BufferedImage screen, int frames, CardPainter painter) {
+            long start = System.nanoTime();
+            for (int frame = 0; frame < frames; frame++) {
+                Graphics2D g = screen.createGraphics();
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, screen.getWidth(), screen.getHeight());
+                for (int card = 0; card < 5; card++) {
+                    painter.paint(g, card * 270, (frame + card) % 5 == 0);
+                }
+                g.dispose();
+            }
+            return frames / ((System.nanoTime() - start) / 1e9);
+        }
+
+        private interface Timed {
+            // Runs one iteration and returns the System.nanoTime() at which the first entry was available
+            long run() throws Exception;
+        }
+
+        private static void measure(String name, int entries, Timed task) throws Exception {
+            com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+            long threadId = Thread.currentThread().getId();
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                task.run();
+            }
+            double totalMs = 0;
+            double firstMs = 0;
+            double allocatedMb = 0;
+            for (int i = 0; i < MEASURED_ROUNDS; i++) {
+                long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+                long start = System.nanoTime();
+                long first = task.run();
+                long end = System.nanoTime();
+                allocatedMb += (threads.getThreadAllocatedBytes(threadId) - allocatedBefore) / 1048576.0;
+                totalMs += (end - start) / 1e6;
+                firstMs += (first - start) / 1e6;
+            }
+            System.out.printf("%-10s total %8.1f ms   first entry %8.2f ms   allocated %8.1f MB%n",
+                name, totalMs / MEASURED_ROUNDS, firstMs / MEASURED_ROUNDS, allocatedMb / MEASURED_ROUNDS);
+            record("catalog", name, "total", totalMs / MEASURED_ROUNDS, "ms", true, "entries", entries);
+            record("catalog", name, "firstEntry", firstMs / MEASURED_ROUNDS, "ms", true, "entries", entries);
+            record("catalog", name, "allocated", allocatedMb / MEASURED_ROUNDS, "MB", true, "entries", entries);
+        }
+
+        private interface Action {
+            void run() throws Exception;
+        }
+
+        // Mean wall time of a task over rounds runs, after WARMUP_ROUNDS unmeasured ones
+        private static double meanMillis(int rounds, Action task) throws Exception {
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                task.run();
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                task.run();
+            }
+            return (System.nanoTime() - start) / 1e6 / rounds;
+        }
+
+        // How long it takes to learn the version of every installed app: reading a .version file per
+        // jar, as the dashboard used to, against the index cold (hashing and migrating every jar),
+        // reloaded from index.dat by a fresh process, and already in memory
+        static void index(int apps) throws Exception {
+            Path dir = Files.createTempDirectory("dja-index-");
+            try {
+                byte[] jar = minimalJar();
+                for (int i = 0; i < apps; i++) {
+                    Files.write(dir.resolve("App" + i + ".jar"), jar);
+                    Files.writeString(dir.resolve("App" + i + ".version"), "1." + (i % 10));
+                }
+                System.out.printf("index fixture: %d installed apps%n", apps);
+
+                double versionFiles = meanMillis(MEASURED_ROUNDS, () -> {
+                    try (DirectoryStream<Path> jars = Files.newDirectoryStream(dir, "*.jar")) {
+                        for (Path path : jars) {
+                            String name = path.getFileName().toString().replace(".jar", ".version");
+                            Files.readString(path.resolveSibling(name)).trim();
+                        }
+                    }
+                });
+                long start = System.nanoTime();
+                new InstalledIndex(dir).reconcile();
+                double cold = (System.nanoTime() - start) / 1e6;
+                double reload = meanMillis(MEASURED_ROUNDS, () -> new InstalledIndex(dir).reconcile());
+                InstalledIndex index = new InstalledIndex(dir);
+                double warm = meanMillis(MEASURED_ROUNDS, index::reconcile);
+
+                System.out.printf("version files %8.1f ms%nindex cold    %8.1f ms%nindex reload  %8.1f ms%n"
+                    + "index warm    %8.1f ms%n", versionFiles, cold, reload, warm);
+                record("index", "version files", "time", versionFiles, "ms", true, "apps", apps);
+                record("index", "cold", "time", cold, "ms", true, "apps", apps);
+                record("index", "reload", "time", reload, "ms", true, "apps", apps);
+                record("index", "warm", "time", warm, "ms", true, "apps", apps);
+            } finally {
+                try (java.util.stream.Stream<Path> files = Files.list(dir)) {
+                    for (Path file : (Iterable<Path>) files::iterator) {
+                        Files.delete(file);
+                    }
+                }
+                Files.delete(dir);
+            }
+        }
+
+        private static byte[] minimalJar() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            java.util.jar.Manifest manifest = new java.util.jar.Manifest();
+            manifest.getMainAttributes().put(java.util.jar.Attributes.Name.MANIFEST_VERSION, "1.0");
+            manifest.getMainAttributes().put(java.util.jar.Attributes.Name.MAIN_CLASS, "Main");
+            try (java.util.jar.JarOutputStream out = new java.util.jar.JarOutputStream(bytes, manifest)) {
+                out.putNextEntry(new java.util.zip.ZipEntry("Main.class"));
+                out.write(new byte[2048]);
+            }
+            return bytes.toByteArray();
+        }
+
+        // DownloadEngine against an in-process HTTP server on loopback: one large file as a single
+        // stream and as ranged segments, then a batch of small files where per-request cost dominates
+        static void download(int megabytes) throws Exception {
+            byte[] payload = new byte[megabytes * 1048576];
+            new Random(42).nextBytes(payload);
+            byte[] small = Arrays.copyOf(payload, 64 * 1024);
+            com.sun.net.httpserver.HttpServer server = com.sun.net.httpserver.HttpServer.create(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+            ExecutorService handlers = Executors.newCachedThreadPool();
+            server.setExecutor(handlers);
+            server.createContext("/plain", exchange -> serve(exchange, payload, false));
+            server.createContext("/ranged", exchange -> serve(exchange, payload, true));
+            server.createContext("/small", exchange -> serve(exchange, small, false));
+            server.start();
+            String base = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+            DownloadEngine engine = new DownloadEngine();
+            Path target = Files.createTempFile("dja-download-", ".bin");
+            try {
+                double single = meanMillis(MEASURED_ROUNDS, () -> engine.download(base + "/plain", target));
+                double segmented = meanMillis(MEASURED_ROUNDS, () -> engine.download(base + "/ranged", target));
+                int files = 100;
+                double batch = meanMillis(MEASURED_ROUNDS, () -> {
+                    for (int i = 0; i < files; i++) {
+                        engine.download(base + "/small", target);
+                    }
+                });
+                System.out.printf("download single    %8.1f MB/s%ndownload segmented %8.1f MB/s%n"
+                    + "download 64 KB     %8.2f ms per file%n",
+                    megabytes / (single / 1000), megabytes / (segmented / 1000), batch / files);
+                record("download", "single", "throughput", megabytes / (single / 1000), "MB/s", false, "mb", megabytes);
+                record("download", "segmented", "throughput", megabytes / (segmented / 1000), "MB/s", false,
+                    "mb", megabytes);
+                record("download", "small file", "latency", batch / files, "ms", true, "kb", 64);
+            } finally {
+                server.stop(0);
+                handlers.shutdownNow();
+                Files.deleteIfExists(target);
+            }
+        }
+
+        // Serves body whole, or with ranges a single requested byte range, answering HEAD with headers only
+        private static void serve(com.sun.net.httpserver.HttpExchange exchange, byte[] body, boolean ranges)
+                throws IOException {
+            try {
+                int start = 0;
+                int end = body.length - 1;
+                int status = HttpURLConnection.HTTP_OK;
+                String range = exchange.getRequestHeaders().getFirst("Range");
+                if (ranges) {
+                    exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+                    if (range != null && range.startsWith("bytes=")) {
+                        String[] bounds = range.substring("bytes=".length()).split("-");
+                        start = Integer.parseInt(bounds[0]);
+                        if (bounds.length > 1 && !bounds[1].isEmpty()) {
+                            end = Math.min(end, Integer.parseInt(bounds[1]));
+                        }
+                        status = HttpURLConnection.HTTP_PARTIAL;
+                        exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + body.length);
+                    }
+                }
+                int length = end - start + 1;
+                if (exchange.getRequestMethod().equals("HEAD")) {
+                    exchange.getResponseHeaders().set("Content-Length", String.valueOf(length));
+                    exchange.sendResponseHeaders(status, -1);
+                    return;
+                }
+                exchange.sendResponseHeaders(status, length);
+                exchange.getResponseBody().write(body, start, length);
+            } finally {
+                exchange.close();
+            }
+        }
+
+        // One measurement; lowerIsBetter tells compare which direction is a regression
+        private static void record(String suite, String name, String metric, double value, String unit,
+                                   boolean lowerIsBetter, String param, Object paramValue) {
+            JSONObject result = new JSONObject();
+            result.put("suite", suite);
+            result.put("name", name);
+            result.put("metric", metric);
+            result.put("value", value);
+            result.put("unit", unit);
+            result.put("better", lowerIsBetter ? "lower" : "higher");
+            result.put("params", new JSONObject().put(param, paramValue));
+            results.put(result);
+        }
+
+        private static void writeResults(Path file) throws IOException {
+            JSONObject run = new JSONObject();
+            run.put("timestamp", java.time.Instant.now().toString());
+            run.put("java", System.getProperty("java.vm.name") + " " + System.getProperty("java.runtime.version"));
+            run.put("os", System.getProperty("os.name") + " " + System.getProperty("os.arch"));
+            run.put("cpus", Runtime.getRuntime().availableProcessors());
+            run.put("results", results);
+            Files.writeString(file, run.toString(2) + "\n");
+            System.out.println("Wrote " + results.length() + " results to " + file);
+        }
+
+        // Matches the results of two runs by suite, name, metric and parameters, prints how each moved,
+        // and returns how many got worse by more than NOISE_PERCENT
+        static int compare(Path baseline, Path current) throws IOException {
+            Map<String, JSONObject> before = new HashMap<>();
+            JSONArray baselineResults = new JSONObject(Files.readString(baseline)).getJSONArray("results");
+            for (int i = 0; i < baselineResults.length(); i++) {
+                before.put(resultKey(baselineResults.getJSONObject(i)), baselineResults.getJSONObject(i));
+            }
+            int regressions = 0;
+            JSONArray currentResults = new JSONObject(Files.readString(current)).getJSONArray("results");
+            for (int i = 0; i < currentResults.length(); i++) {
+                JSONObject result = currentResults.getJSONObject(i);
+                JSONObject old = before.get(resultKey(result));
+                String label = resultKey(result);
+                if (old == null) {
+                    System.out.printf("%-60s %12s %12.2f %s%n", label, "-", result.getDouble("value"),
+                        result.getString("unit"));
+                    continue;
+                }
+                double then = old.getDouble("value");
+                double now = result.getDouble("value");
+                double change = then == 0 ? 0 : (now - then) / then * 100;
+                boolean lowerIsBetter = result.getString("better").equals("lower");
+                double worse = lowerIsBetter ? change : -change;
+                String verdict = worse > NOISE_PERCENT ? "REGRESSION" : worse < -NOISE_PERCENT ? "improved" : "";
+                if (worse > NOISE_PERCENT) {
+                    regressions++;
+                }
+                System.out.printf("%-60s %12.2f %12.2f %s %+7.1f%% %s%n", label, then, now, result.getString("unit"),
+                    change, verdict);
+            }
+            return regressions;
+        }
+
+        private static String resultKey(JSONObject result) {
+            return result.getString("suite") + " " + result.getString("name") + " " + result.getString("metric")
+                + " " + new TreeMap<>(result.getJSONObject("params").toMap());
+        }
+    }
+
+    // Orders version strings the way people read them. Numeric parts compare as numbers and missing
+    // ones count as zero (1.10 > 1.9, 1.2 == 1.2.0); a leading "v" and build metadata after "+" are
+    // ignored; a qualifier after the release numbers marks a pre-release, which sorts before the
+    // release itself (1.0-alpha < 1.0-beta.2 < 1.0-rc1 < 1.0 == 1.0.final).
+    private static final class VersionComparator implements Comparator<String> {
+        static final VersionComparator INSTANCE = new VersionComparator();
+        // Known qualifiers in release order; anything else (dev, snapshot, ...) sorts before alpha
+        private static final List<String> QUALIFIERS = List.of("alpha", "beta", "milestone", "rc");
+
+        static boolean isNewer(String candidate, String current) {
+            return INSTANCE.compare(candidate, current) > 0;
+        }
+
+        @Override
+        public int compare(String a, String b) {
+            String[] left = split(a);
+            String[] right = split(b);
+            List<String> leftRelease = parts(left[0]);
+            List<String> rightRelease = parts(right[0]);
+            for (int i = 0; i < Math.max(leftRelease.size(), rightRelease.size()); i++) {
+                int cmp = compareParts(i < leftRelease.size() ? leftRelease.get(i) : "0",
+                    i < rightRelease.size() ? rightRelease.get(i) : "0");
+                if (cmp != 0) {
+                    return cmp;
+                }
+            }
+            if (left[1].isEmpty() || right[1].isEmpty()) {
+                return Boolean.compare(left[1].isEmpty(), right[1].isEmpty());
+            }
+            // Pre-releases compare part by part; with an equal prefix, fewer parts is earlier
+            List<String> leftQualifier = parts(left[1]);
+            List<String> rightQualifier = parts(right[1]);
+            for (int i = 0; i < Math.min(leftQualifier.size(), rightQualifier.size()); i++) {
+                int cmp = compareParts(leftQualifier.get(i), rightQualifier.get(i));
+                if (cmp != 0) {
+                    return cmp;
+                }
+            }
+            return Integer.compare(leftQualifier.size(), rightQualifier.size());
+        }
+
+        // Splits into the release numbers and the pre-release qualifier, which is empty for a release
+        private static String[] split(String version) {
+            String v = version.trim().toLowerCase(Locale.ROOT);
+            int plus = v.indexOf('+');
+            if (plus >= 0) {
+                v = v.substring(0, plus);
+            }
+            if (v.length() > 1 && v.charAt(0) == 'v' && Character.isDigit(v.charAt(1))) {
+                v = v.substring(1);
+            }
+            int end = 0;
+            while (end < v.length() && (Character.isDigit(v.charAt(end)) || v.charAt(end) == '.')) {
+                end++;
+            }
+            String qualifier = v.substring(end).replaceFirst("^[-._]+", "");
+            if (qualifier.equals("final") || qualifier.equals("ga") || qualifier.equals("release")) {
+                qualifier = "";
+            }
+            return new String[] {v.substring(0, end), qualifier};
+        }
+
+        // Runs of digits or of letters; separators only delimit
+        private static List<String> parts(String text) {
+            List<String> parts = new ArrayList<>();
+            int start = 0;
+            while (start < text.length()) {
+                char c = text.charAt(start);
+                if (!Character.isLetterOrDigit(c)) {
+                    start++;
+                    continue;
+                }
+                boolean digits = Character.isDigit(c);
+                int end = start + 1;
+                while (end < text.length() && Character.isLetterOrDigit(text.charAt(end))
+                        && Character.isDigit(text.charAt(end)) == digits) {
+                    end++;
+                }
+                parts.add(text.substring(start, end));
+                start = end;
+            }
+            return parts;
+        }
+
+        private static int compareParts(String a, String b) {
+            boolean numericA = Character.isDigit(a.charAt(0));
+            boolean numericB = Character.isDigit(b.charAt(0));
+            if (numericA && numericB) {
+                // Arbitrarily long numbers: without leading zeros, the longer one is larger
+                String x = a.replaceFirst("^0+(?=.)", "");
+                String y = b.replaceFirst("^0+(?=.)", "");
+                return x.length() != y.length() ? Integer.compare(x.length(), y.length()) : x.compareTo(y);
+            }
+            if (numericA != numericB) {
+                return numericA ? -1 : 1;
+            }
+            int cmp = Integer.compare(QUALIFIERS.indexOf(alias(a)), QUALIFIERS.indexOf(alias(b)));
+            return cmp != 0 ? cmp : a.compareTo(b);
+        }
+
+        private static String alias(String qualifier) {
+            switch (qualifier) {
+                case "a":
+                    return "alpha";
+                case "b":
+                    return "beta";
+                case "m":
+                    return "milestone";
+                case "cr":
+                case "pre":
+                case "preview":
+                    return "rc";
+                default:
+                    return qualifier;
+            }
+        }
+    }
+
+    // One row of the Installed Apps tab
+    private static final class InstalledApp {
+        final File jarFile;
+        final String name;
+        final String localVersion;
+        // Version published in the catalog, or null when the app is not listed
+        final String onlineVersion;
+        final String iconUrl;
+
+        InstalledApp(File jarFile, String name, String localVersion, String onlineVersion, String iconUrl) {
+            this.jarFile = jarFile;
+            this.name = name;
+            this.localVersion = localVersion;
+            this.onlineVersion = onlineVersion;
+            this.iconUrl = iconUrl;
+        }
+
+        boolean hasUpdate() {
+            return onlineVersion != null && VersionComparator.isNewer(onlineVersion, localVersion);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof InstalledApp)) {
+                return false;
+            }
+            InstalledApp other = (InstalledApp) o;
+            return jarFile.equals(other.jarFile) && name.equals(other.name) && localVersion.equals(other.localVersion)
+                && Objects.equals(onlineVersion, other.onlineVersion) && iconUrl.equals(other.iconUrl);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(jarFile, name, localVersion, onlineVersion, iconUrl);
+        }
+    }
+
+    // Wall-clock phases of one dashboard start, as offsets from JVM launch. Logged once both background
+    // loads have finished and appended to cache/startup.log, so a slow start shows up across sessions.
+    private static final class StartupTimer {
+        private static final long JVM_START_MS = ProcessHandle.current().info().startInstant()
+            .map(java.time.Instant::toEpochMilli).orElse(System.currentTimeMillis());
+        private static final StringBuilder phases = new StringBuilder();
+        private static long lastMark = JVM_START_MS;
+        private static int pendingLoads = 2;
+
+        static synchronized void mark(String phase) {
+            if (pendingLoads < 0) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            phases.append(phases.length() == 0 ? "" : " ").append(phase).append('=').append(now - JVM_START_MS)
+                .append("ms(+").append(now - lastMark).append(')');
+            lastMark = now;
+        }
+
+        // One of the startup loads (installed apps, catalog) finished; the last one writes the log
+        static synchronized void loadFinished(String phase, Path log) {
+            mark(phase);
+            if (--pendingLoads != 0) {
+                return;
+            }
+            pendingLoads = -1;
+            String line = java.time.Instant.now() + " " + phases;
+            System.out.println("Startup: " + phases);
+            try {
+                Files.createDirectories(log.getParent());
+                Files.writeString(log, line + System.lineSeparator(), StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                System.err.println("Could not append to " + log + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // dja.properties in the install directory holds defaults for the -Ddja.* options, so a lab can point
+    // every machine at its mirror (dja.catalog=...) without editing the launchers. Options given on the
+    // command line win.
+    private static final class Settings {
+        private static final Path FILE = Paths.get("dja.properties");
+
+        static void load() {
+            if (!Files.isRegularFile(FILE)) {
+                return;
+            }
+            Properties settings = new Properties();
+            try (Reader reader = Files.newBufferedReader(FILE)) {
+                settings.load(reader);
+            } catch (IOException e) {
+                System.err.println("Ignoring unreadable " + FILE + ": " + e.getMessage());
+                return;
+            }
+            for (String name : settings.stringPropertyNames()) {
+                if (name.startsWith("dja.") && System.getProperty(name) == null) {
+                    System.setProperty(name, settings.getProperty(name));
+                }
+            }
+        }
+    }
+
+    // Timings of the dashboard's slow paths: catalog fetch and parse, list rendering, downloads, the
+    // dashboard self-compile, installs, launches and event dispatch on the EDT. Each operation keeps
+    // its most recent samples for percentiles, and while a flight recording is running every one is
+    // also a JFR event (jfr print --events 'dja.*' recording.jfr). Shown by the diagnostics dialog
+    // (Ctrl+Shift+D); with -Ddja.metrics.dump=<file> the report is also written on exit.
+    private static final class Metrics {
+        private static final int WINDOW = 1024;
+        private static final int MAX_STALLS = 20;
+        private static final Map<String, Timing> timings = new ConcurrentSkipListMap<>();
+        private static final Deque<Stall> stalls = new ArrayDeque<>();
+
+        static {
+            String dump = System.getProperty("dja.metrics.dump");
+            if (dump != null) {
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        Files.writeString(Paths.get(dump), report());
+                    } catch (IOException e) {
+                        System.err.println("Could not write metrics to " + dump + ": " + e.getMessage());
+                    }
+                }, "metrics-dump"));
+            }
+        }
+
+        // Count, total and maximum over the whole session; percentiles over the last WINDOW samples
+        static final class Timing {
+            final String name;
+            private final long[] recent = new long[WINDOW];
+            private long count;
+            private long totalNanos;
+            private long maxNanos;
+
+            Timing(String name) {
+                this.name = name;
+            }
+
+            synchronized void record(long nanos) {
+                recent[(int) (count % WINDOW)] = nanos;
+                count++;
+                totalNanos += nanos;
+                maxNanos = Math.max(maxNanos, nanos);
+            }
+
+            synchronized Summary summary() {
+                long[] sorted = Arrays.copyOf(recent, (int) Math.min(count, WINDOW));
+                Arrays.sort(sorted);
+                return new Summary(name, count, count == 0 ? 0 : totalNanos / count, percentile(sorted, 50),
+                    percentile(sorted, 90), percentile(sorted, 99), maxNanos);
+            }
+
+            private static long percentile(long[] sorted, int percent) {
+                return sorted.length == 0 ? 0 : sorted[Math.min(sorted.length - 1, sorted.length * percent / 100)];
+            }
+        }
+
+        static final class Summary {
+            final String name;
+            final long count;
+            final long meanNanos;
+            final long p50Nanos;
+            final long p90Nanos;
+            final long p99Nanos;
+            final long maxNanos;
+
+            Summary(String name, long count, long meanNanos, long p50Nanos, long p90Nanos, long p99Nanos,
+                    long maxNanos) {
+                this.name = name;
+                this.count = count;
+                this.meanNanos = meanNanos;
+                this.p50Nanos = p50Nanos;
+                this.p90Nanos = p90Nanos;
+                this.p99Nanos = p99Nanos;
+                this.maxNanos = maxNanos;
+            }
+        }
+
+        // An event dispatch that held the EDT past the stall threshold
+        static final class Stall {
+            final java.time.Instant when;
+            final long nanos;
+            final String event;
+            // The EDT's stack while it was stuck, or empty if the watchdog did not catch it in time
+            final String stack;
+
+            Stall(java.time.Instant when, long nanos, String event, String stack) {
+                this.when = when;
+                this.nanos = nanos;
+                this.event = event;
+                this.stack = stack;
+            }
+        }
+
+        // One timed run of an operation, ended in a finally block so failures are timed too
+        static final class Span {
+            private final Timing timing;
+            private final OperationEvent event = new OperationEvent();
+            private final long start = System.nanoTime();
+            private String detail = "";
+
+            Span(Timing timing) {
+                this.timing = timing;
+                event.begin();
+            }
+
+            // Shown with the JFR event, e.g. the URL of a download
+            Span detail(String detail) {
+                this.detail = detail;
+                return this;
+            }
+
+            void end() {
+                timing.record(System.nanoTime() - start);
+                event.end();
+                if (event.shouldCommit()) {
+                    event.operation = timing.name;
+                    event.detail = detail;
+                    event.commit();
+                }
+            }
+        }
+
+        static Span start(String operation) {
+            return new Span(timing(operation));
+        }
+
+        // For operations that start and finish on different threads, such as a SwingWorker's load and done()
+        static void record(String operation, long nanos) {
+            timing(operation).record(nanos);
+        }
+
+        static void stall(long nanos, String event, String stack) {
+            record("edt.stall", nanos);
+            synchronized (stalls) {
+                if (stalls.size() == MAX_STALLS) {
+                    stalls.removeFirst();
+                }
+                stalls.addLast(new Stall(java.time.Instant.now(), nanos, event, stack));
+            }
+            EdtStallEvent jfrEvent = new EdtStallEvent();
+            if (jfrEvent.shouldCommit()) {
+                jfrEvent.dispatchTime = nanos;
+                jfrEvent.event = event;
+                jfrEvent.stack = stack;
+                jfrEvent.commit();
+            }
+        }
+
+        private static Timing timing(String operation) {
+            return timings.computeIfAbsent(operation, Timing::new);
+        }
+
+        static List<Summary> summaries() {
+            List<Summary> summaries = new ArrayList<>(timings.size());
+            for (Timing timing : timings.values()) {
+                summaries.add(timing.summary());
+            }
+            return summaries;
+        }
+
+        // Most recent last
+        static List<Stall> stalls() {
+            synchronized (stalls) {
+                return new ArrayList<>(stalls);
+            }
+        }
+
+        // Plain-text table of every operation followed by the recent stalls, for bug reports
+        static String report() {
+            StringBuilder out = new StringBuilder();
+            out.append(String.format("%-20s %8s %10s %10s %10s %10s %10s%n", "operation", "count", "mean ms",
+                "p50 ms", "p90 ms", "p99 ms", "max ms"));
+            for (Summary summary : summaries()) {
+                out.append(String.format("%-20s %8d %10.2f %10.2f %10.2f %10.2f %10.2f%n", summary.name,
+                    summary.count, summary.meanNanos / 1e6, summary.p50Nanos / 1e6, summary.p90Nanos / 1e6,
+                    summary.p99Nanos / 1e6, summary.maxNanos / 1e6));
+            }
+            for (Stall stall : stalls()) {
+                out.append(String.format("%nEDT stall %s: %.0f ms in %s%n%s", stall.when, stall.nanos / 1e6,
+                    stall.event, stall.stack));
+            }
+            return out.toString();
+        }
+
+        @jdk.jfr.Name("dja.Operation")
+        @jdk.jfr.Label("DJA Operation")
+        @jdk.jfr.Category("DJA")
+        static final class OperationEvent extends jdk.jfr.Event {
+            @jdk.jfr.Label("Operation")
+            String operation;
+
+            @jdk.jfr.Label("Detail")
+            String detail;
+        }
+
+        @jdk.jfr.Name("dja.EdtStall")
+        @jdk.jfr.Label("DJA EDT Stall")
+        @jdk.jfr.Category("DJA")
+        static final class EdtStallEvent extends jdk.jfr.Event {
+            @jdk.jfr.Label("Dispatch Time")
+            @jdk.jfr.Timespan
+            long dispatchTime;
+
+            @jdk.jfr.Label("Event")
+            String event;
+
+            @jdk.jfr.Label("Stack")
+            String stack;
+        }
+    }
+
+    // Times every event the EDT dispatches as edt.dispatch. One that runs past the threshold
+    // (-Ddja.edtStallMs, default 100, 0 to disable) is reported as a stall; a watchdog thread captures
+    // the EDT's stack while it is still stuck, since afterwards it would only show the queue loop.
+    private static final class StallDetectingEventQueue extends EventQueue {
+        private static final int STACK_DEPTH = 16;
+        private final long thresholdNanos;
+        private volatile Thread dispatchThread;
+        // Identifies the dispatch in progress; 0 while idle or while a modal dialog pumps nested events
+        private volatile long dispatchId;
+        private volatile long dispatchStart;
+        private volatile long capturedId;
+        private volatile String capturedStack = "";
+        private long serial;
+
+        private StallDetectingEventQueue(long thresholdMillis) {
+            thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+            ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "edt-watchdog");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long period = Math.max(1, thresholdMillis / 2);
+            watchdog.scheduleAtFixedRate(this::checkDispatch, period, period, TimeUnit.MILLISECONDS);
+        }
+
+        static void install() {
+            long thresholdMillis = Long.getLong("dja.edtStallMs", 100);
+            if (thresholdMillis > 0) {
+                Toolkit.getDefaultToolkit().getSystemEventQueue().push(new StallDetectingEventQueue(thresholdMillis));
+            }
+        }
+
+        @Override
+        protected void dispatchEvent(AWTEvent event) {
+            long id = ++serial;
+            dispatchThread = Thread.currentThread();
+            long start = System.nanoTime();
+            dispatchStart = start;
+            dispatchId = id;
+            try {
+                super.dispatchEvent(event);
+            } finally {
+                long nanos = System.nanoTime() - start;
+                dispatchId = 0;
+                // A modal dialog dispatches further events from inside this one; the time spent
+                // waiting on the user is not a stall
+                if (serial == id) {
+                    Metrics.record("edt.dispatch", nanos);
+                    if (nanos >= thresholdNanos) {
+                        Metrics.stall(nanos, describe(event), capturedId == id ? capturedStack : "");
+                    }
+                }
+            }
+        }
+
+        private void checkDispatch() {
+            long id = dispatchId;
+            Thread thread = dispatchThread;
+            if (id == 0 || id == capturedId || thread == null || System.nanoTime() - dispatchStart < thresholdNanos) {
+                return;
+            }
+            StackTraceElement[] stack = thread.getStackTrace();
+            if (dispatchId != id) {
+                return;
+            }
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < Math.min(stack.length, STACK_DEPTH); i++) {
+                text.append("    at ").append(stack[i]).append(System.lineSeparator());
+            }
+            capturedStack = text.toString();
+            capturedId = id;
+        }
+
+        private static String describe(AWTEvent event) {
+            String source = event.getSource() != null ? event.getSource().getClass().getName() : "null";
+            return event.getClass().getSimpleName() + " from " + source;
+        }
+    }
+
+    // The Installed Apps rows as last shown, so the next start can paint them before the index or the
+    // catalog is read. Written after each complete load and when the window closes.
+    private static final class SessionSnapshot {
+        private static final int MAGIC = 0x444A4153; // "DJAS"
+        private static final int FORMAT_VERSION = 1;
+
+        static List<InstalledApp> read(Path file) {
+            if (!Files.exists(file)) {
+                return Collections.emptyList();
+            }
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file)))) {
+                if (in.readInt() != MAGIC || in.readUnsignedByte() != FORMAT_VERSION) {
+                    throw new IOException("unrecognised format");
+                }
+                int count = in.readInt();
+                List<InstalledApp> rows = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    String name = in.readUTF();
+                    File jarFile = new File(in.readUTF());
+                    String localVersion = in.readUTF();
+                    String onlineVersion = in.readBoolean() ? in.readUTF() : null;
+                    rows.add(new InstalledApp(jarFile, name, localVersion, onlineVersion, in.readUTF()));
+                }
+                return rows;
+            } catch (IOException e) {
+                // Only a head start; the real load replaces whatever this would have shown
+                System.err.println("Ignoring unreadable " + file + ": " + e.getMessage());
+                return Collections.emptyList();
+            }
+        }
+
+        static void write(Path file, List<InstalledApp> rows) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + rows.size() * 128);
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeInt(MAGIC);
+                out.writeByte(FORMAT_VERSION);
+                out.writeInt(rows.size());
+                for (InstalledApp app : rows) {
+                    out.writeUTF(app.name);
+                    out.writeUTF(app.jarFile.getPath());
+                    out.writeUTF(app.localVersion);
+                    out.writeBoolean(app.onlineVersion != null);
+                    if (app.onlineVersion != null) {
+                        out.writeUTF(app.onlineVersion);
+                    }
+                    out.writeUTF(app.iconUrl);
+                }
+            }
+            Files.createDirectories(file.getParent());
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.write(temp, bytes.toByteArray());
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    // List model for card views; batches of rows are added with a single event
+    private static final class CardListModel<T> extends AbstractListModel<T> {
+        private final List<T> items = new ArrayList<>();
+
+        @Override
+        public int getSize() {
+            return items.size();
+        }
+
+        @Override
+        public T getElementAt(int index) {
+            return items.get(index);
+        }
+
+        void addAll(List<T> added) {
+            if (added.isEmpty()) {
+                return;
+            }
+            int start = items.size();
+            items.addAll(added);
+            fireIntervalAdded(this, start, items.size() - 1);
+        }
+
+        void setAll(List<T> replacement) {
+            clear();
+            addAll(replacement);
+        }
+
+        List<T> items() {
+            return Collections.unmodifiableList(items);
+        }
+
+        // Turns the list into replacement, matching rows by key: equal rows are left alone, rows
+        // whose key survives are updated in place, and rows are only inserted or removed for keys
+        // that appear or disappear (or move). Changed rows are reported as one event at the end;
+        // JList defers layout and painting, so a reconcile costs a single revalidate and repaint.
+        <K> void reconcile(List<T> replacement, Function<T, K> key) {
+            // Skip the unchanged head and tail; for an unchanged list that is all there is
+            int start = 0;
+            int oldEnd = items.size();
+            int newEnd = replacement.size();
+            while (start < oldEnd && start < newEnd && items.get(start).equals(replacement.get(start))) {
+                start++;
+            }
+            while (oldEnd > start && newEnd > start && items.get(oldEnd - 1).equals(replacement.get(newEnd - 1))) {
+                oldEnd--;
+                newEnd--;
+            }
+            if (start == oldEnd && start == newEnd) {
+                return;
+            }
+
+            Set<K> wanted = new HashSet<>();
+            for (int i = start; i < newEnd; i++) {
+                wanted.add(key.apply(replacement.get(i)));
+            }
+            for (int end = oldEnd; end > start; ) {
+                int run = end;
+                while (run > start && !wanted.contains(key.apply(items.get(run - 1)))) {
+                    run--;
+                }
+                if (run < end) {
+                    removeRange(run, end);
+                    oldEnd -= end - run;
+                }
+                end = run - 1;
+            }
+
+            // Left of row every row is final, so changed rows are already at their final index
+            Set<K> placed = new HashSet<>();
+            int row = start;
+            int firstChanged = -1;
+            int lastChanged = -1;
+            for (int i = start; i < newEnd; i++) {
+                T next = replacement.get(i);
+                K nextKey = key.apply(next);
+                // A row whose key was placed earlier has moved up; drop its old copy
+                while (row < oldEnd && placed.contains(key.apply(items.get(row)))) {
+                    removeRange(row, row + 1);
+                    oldEnd--;
+                }
+                if (row < oldEnd && key.apply(items.get(row)).equals(nextKey)) {
+                    if (!items.get(row).equals(next)) {
+                        items.set(row, next);
+                        firstChanged = firstChanged < 0 ? row : firstChanged;
+                        lastChanged = row;
+                    }
+                } else {
+                    items.add(row, next);
+                    oldEnd++;
+                    fireIntervalAdded(this, row, row);
+                }
+                placed.add(nextKey);
+                row++;
+            }
+            if (row < oldEnd) {
+                removeRange(row, oldEnd);
+            }
+            if (firstChanged >= 0) {
+                fireContentsChanged(this, firstChanged, lastChanged);
+            }
+        }
+
+        private void removeRange(int from, int to) {
+            items.subList(from, to).clear();
+            fireIntervalRemoved(this, from, to - 1);
+        }
+
+        void set(int index, T item) {
+            items.set(index, item);
+            fireContentsChanged(this, index, index);
+        }
+
+        void insert(int index, T item) {
+            items.add(index, item);
+            fireIntervalAdded(this, index, index);
+        }
+
+        void remove(int index) {
+            items.remove(index);
+            fireIntervalRemoved(this, index, index);
+        }
+
+        void clear() {
+            if (items.isEmpty()) {
+                return;
+            }
+            int end = items.size() - 1;
+            items.clear();
+            fireIntervalRemoved(this, 0, end);
+        }
+    }
+
+    // A stamped card renderer exposes the button it draws so clicks can be routed to it
+    private interface CardRenderer<T> extends ListCellRenderer<T> {
+        JButton actionButton();
+    }
+
+    // Hover and press state of stamped buttons lives on the list, keyed by row
+    private static final String HOVER_ROW = "dja.hoverRow";
+    private static final String PRESSED_ROW = "dja.pressedRow";
+
+    private static boolean isRow(JList<?> list, String property, int index) {
+        Object row = list.getClientProperty(property);
+        return row instanceof Integer && (Integer) row == index;
+    }
+
+    // Applies the per-row hover/press state to a stamped button
+    private static void stampButtonState(JList<?> list, JButton button, int index) {
+        ButtonModel model = button.getModel();
+        boolean pressed = isRow(list, PRESSED_ROW, index);
+        model.setRollover(isRow(list, HOVER_ROW, index));
+        model.setArmed(pressed);
+        model.setPressed(pressed);
+    }
+
+    // Translates mouse events on a card list into hover, press and click on the stamped button
+    private static final class CardMouseHandler<T> extends MouseAdapter {
+        private final JList<T> list;
+        private final CardRenderer<T> renderer;
+        private final Consumer<T> action;
+
+        CardMouseHandler(JList<T> list, CardRenderer<T> renderer, Consumer<T> action) {
+            this.list = list;
+            this.renderer = renderer;
+            this.action = action;
+        }
+
+        @Override
+        public void mouseMoved(MouseEvent e) {
+            int row = buttonRowAt(e.getPoint());
+            setRow(HOVER_ROW, row);
+            list.setCursor(row >= 0 ? Cursor.getPredefinedCursor(Cursor.HAND_CURSOR) : Cursor.getDefaultCursor());
+        }
+
+        @Override
+        public void mouseDragged(MouseEvent e) {
+            mouseMoved(e);
+        }
+
+        @Override
+        public void mouseExited(MouseEvent e) {
+            setRow(HOVER_ROW, -1);
+            setRow(PRESSED_ROW, -1);
+            list.setCursor(Cursor.getDefaultCursor());
+        }
+
+        @Override
+        public void mousePressed(MouseEvent e) {
+            if (SwingUtilities.isLeftMouseButton(e)) {
+                setRow(PRESSED_ROW, buttonRowAt(e.getPoint()));
+            }
+        }
+
+        @Override
+        public void mouseReleased(MouseEvent e) {
+            int row = buttonRowAt(e.getPoint());
+            boolean clicked = row >= 0 && isRow(list, PRESSED_ROW, row);
+            setRow(PRESSED_ROW, -1);
+            if (clicked) {
+                action.accept(list.getModel().getElementAt(row));
+            }
+        }
+
+        // Row whose action button is under the point, or -1
+        private int buttonRowAt(Point point) {
+            int row = list.locationToIndex(point);
+            if (row < 0) {
+                return -1;
+            }
+            Rectangle bounds = list.getCellBounds(row, row);
+            if (bounds == null || !bounds.contains(point)) {
+                return -1;
+            }
+            Component card = renderer.getListCellRendererComponent(list, list.getModel().getElementAt(row), row, false, false);
+            card.setBounds(0, 0, bounds.width, bounds.height);
+            layoutTree(card);
+            JButton button = renderer.actionButton();
+            if (!button.isVisible()) {
+                return -1;
+            }
+            Point local = SwingUtilities.convertPoint(card, point.x - bounds.x, point.y - bounds.y, button);
+            return button.contains(local) ? row : -1;
+        }
+
+        private void setRow(String property, int row) {
+            Object previous = list.getClientProperty(property);
+            if (previous instanceof Integer && (Integer) previous == row) {
+                return;
+            }
+            list.putClientProperty(property, row >= 0 ? row : null);
+            repaintRow(previous instanceof Integer ? (Integer) previous : -1);
+            repaintRow(row);
+        }
+
+        private void repaintRow(int row) {
+            if (row >= 0 && row < list.getModel().getSize()) {
+                Rectangle bounds = list.getCellBounds(row, row);
+                if (bounds != null) {
+                    list.repaint(bounds);
+                }
+            }
+        }
+
+        private static void layoutTree(Component component) {
+            if (component instanceof Container) {
+                Container container = (Container) component;
+                container.doLayout();
+                for (Component child : container.getComponents()) {
+                    layoutTree(child);
+                }
+            }
+        }
+    }
+
+    // Stamped marketplace card; one instance paints every visible row
+    private class MarketplaceCardRenderer extends JPanel implements CardRenderer<AppEntry> {
+        private final JLabel iconLabel = new JLabel();
+        private final JLabel nameLabel = new JLabel();
+        private final JTextArea descLabel = new JTextArea();
+        private final JLabel versionLabel = new JLabel();
+        private final JLabel authorLabel = new JLabel();
+        private final JButton installButton = new JGradientButton("INSTALL");
+
+        MarketplaceCardRenderer() {
+            super(new BorderLayout());
+            setBackground(Color.WHITE);
+            setBorder(BorderFactory.createEmptyBorder(15, 15, 15, 15));
+
+            JPanel appPanel = new JPanel();
+            appPanel.setLayout(new BorderLayout(20, 15));
+            appPanel.setBackground(cardColor);
+
+            // Enhanced shadow and rounded corners
+            appPanel.setBorder(BorderFactory.createCompoundBorder(
+                new ShadowBorder(10, 0.2f),
+                BorderFactory.createEmptyBorder(25, 25, 25, 25)
+            ));
+
+            // App header
+            JPanel headerPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 15, 0));
+            headerPanel.setBackground(cardColor);
+            nameLabel.setFont(headerFont);
+            nameLabel.setForeground(primaryColor);
+            headerPanel.add(nameLabel);
+
+            // Description panel
+            descLabel.setFont(normalFont);
+            descLabel.setLineWrap(true);
+            descLabel.setWrapStyleWord(true);
+            descLabel.setEditable(false);
+            descLabel.setBackground(cardColor);
+            descLabel.setBorder(BorderFactory.createEmptyBorder(15, 0, 15, 0));
+            descLabel.setForeground(textColor);
+
+            // Details panel
+            JPanel detailsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 20, 10));
+            detailsPanel.setBackground(cardColor);
+            versionLabel.setFont(normalFont);
+            versionLabel.setForeground(new Color(100, 100, 100));
+            authorLabel.setFont(normalFont);
+            authorLabel.setForeground(new Color(100, 100, 100));
+            detailsPanel.add(versionLabel);
+            detailsPanel.add(authorLabel);
+
+            // Content Panel
+            JPanel contentPanel = new JPanel();
+            contentPanel.setLayout(new BoxLayout(contentPanel, BoxLayout.Y_AXIS));
+            contentPanel.setBackground(cardColor);
+            contentPanel.add(headerPanel);
+            contentPanel.add(descLabel);
+            contentPanel.add(detailsPanel);
+
+            // Install button
+            installButton.setFont(new Font("Segoe UI", Font.BOLD, 14));
+
+            iconLabel.setVerticalAlignment(SwingConstants.TOP);
+            appPanel.add(iconLabel, BorderLayout.WEST);
+            appPanel.add(contentPanel, BorderLayout.CENTER);
+            appPanel.add(installButton, BorderLayout.SOUTH);
+            add(appPanel, BorderLayout.CENTER);
+        }
+
+        @Override
+        public Component getListCellRendererComponent(JList<? extends AppEntry> list, AppEntry app, int index,
+                                                      boolean isSelected, boolean cellHasFocus) {
+            iconLabel.setIcon(iconFor(app.icon));
+            nameLabel.setText(app.displayName());
+            descLabel.setText(app.displayDescription());
+            versionLabel.setText("Version " + app.version);
+            authorLabel.setText("By " + app.author);
+            stampButtonState(list, installButton, index);
+            return this;
+        }
+
+        @Override
+        public JButton actionButton() {
+            return installButton;
+        }
+    }
+
+    // Stamped installed-app card; shows Launch or Update Available depending on the row
+    private class InstalledCardRenderer extends JPanel implements CardRenderer<InstalledApp> {
+        private final JLabel iconLabel = new JLabel();
+        private final JLabel nameLabel = new JLabel();
+        private final JLabel versionLabel = new JLabel();
+        private final JLabel updateLabel = new JLabel();
+        private final Component updateGap = Box.createVerticalStrut(5);
+        private final JButton actionButton = new JGradientButton("Launch");
+
+        InstalledCardRenderer() {
+            super(new BorderLayout());
+            setBackground(Color.WHITE);
+            setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+            JPanel appPanel = new JPanel();
+            appPanel.setLayout(new BorderLayout(15, 15));
+            appPanel.setBackground(Color.WHITE);
+            appPanel.setBorder(BorderFactory.createCompoundBorder(
+                new ShadowBorder(10, 0.2f),
+                BorderFactory.createEmptyBorder(20, 20, 20, 20)
+            ));
+
+            // App info panel
+            JPanel infoPanel = new JPanel();
+            infoPanel.setLayout(new BoxLayout(infoPanel, BoxLayout.Y_AXIS));
+            infoPanel.setBackground(Color.WHITE);
+            nameLabel.setFont(headerFont);
+            nameLabel.setForeground(primaryColor);
+            versionLabel.setFont(normalFont);
+            updateLabel.setFont(normalFont);
+            updateLabel.setForeground(new Color(255, 140, 0));
+
+            infoPanel.add(nameLabel);
+            infoPanel.add(Box.createVerticalStrut(5));
+            infoPanel.add(versionLabel);
+            infoPanel.add(updateGap);
+            infoPanel.add(updateLabel);
+
+            iconLabel.setVerticalAlignment(SwingConstants.TOP);
+            appPanel.add(iconLabel, BorderLayout.WEST);
+            appPanel.add(infoPanel, BorderLayout.CENTER);
+            appPanel.add(actionButton, BorderLayout.SOUTH);
+            add(appPanel, BorderLayout.CENTER);
+        }
+
+        @Override
+        public Component getListCellRendererComponent(JList<? extends InstalledApp> list, InstalledApp app, int index,
+                                                      boolean isSelected, boolean cellHasFocus) {
+            iconLabel.setIcon(iconFor(app.iconUrl));
+            nameLabel.setText(app.name);
+            versionLabel.setText("Version: " + app.localVersion);
+            boolean update = app.hasUpdate();
+            updateGap.setVisible(update);
+            updateLabel.setVisible(update);
+            if (update) {
+                updateLabel.setText("🔄 New version " + app.onlineVersion + " available");
+                actionButton.setText("Update Available");
+            } else {
+                actionButton.setText("Launch");
+            }
+            stampButtonState(list, actionButton, index);
+            return this;
+        }
+
+        @Override
+        public JButton actionButton() {
+            return actionButton;
+        }
+    }
+
+    // Loads app icons off the EDT. Requests are coalesced per URL and run on a small fixed
+    // pool; decoded icons are downscaled once to the card size and kept in a byte-bounded
+    // in-memory LRU. Downloaded bytes are stored on disk under their SHA-256, with a small
+    // reference file per URL, so identical icons are stored once and survive restarts.
+    private static final class IconCache {
+        private static final long FAILURE_RETRY_MS = 5 * 60 * 1000;
+
+        private final Path diskDir;
+        private final long maxMemoryBytes;
+        private final ExecutorService loader;
+        private final Map<String, BufferedImage> memory = new LinkedHashMap<>(64, 0.75f, true);
+        private final Map<String, Set<Runnable>> pending = new HashMap<>();
+        private final Map<String, Long> failures = new HashMap<>();
+        private long memoryBytes;
+
+        IconCache(Path diskDir, long maxMemoryBytes, int concurrency) {
+            this.diskDir = diskDir;
+            this.maxMemoryBytes = maxMemoryBytes;
+            this.loader = Executors.newFixedThreadPool(concurrency, runnable -> {
+                Thread thread = new Thread(runnable, "dja-icons");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+        }
+
+        // Returns the scaled icon if it is in memory; otherwise starts (or joins) a load and
+        // runs onLoaded on the EDT once it is available
+        synchronized BufferedImage get(String url, int size, Runnable onLoaded) {
+            if (url == null || url.isEmpty()) {
+                return null;
+            }
+            String key = size + ":" + url;
+            BufferedImage image = memory.get(key);
+            if (image != null) {
+                return image;
+            }
+            Long failedAt = failures.get(key);
+            if (failedAt != null && System.currentTimeMillis() - failedAt < FAILURE_RETRY_MS) {
+                return null;
+            }
+            Set<Runnable> waiters = pending.get(key);
+            if (waiters == null) {
+                waiters = new LinkedHashSet<>();
+                pending.put(key, waiters);
+                loader.execute(() -> load(key, url, size));
+            }
+            waiters.add(onLoaded);
+            return null;
+        }
+
+        private void load(String key, String url, int size) {
+            BufferedImage scaled = null;
+            try {
+                BufferedImage source = ImageIO.read(new ByteArrayInputStream(readBytes(url)));
+                if (source != null) {
+                    scaled = downscale(source, size);
+                }
+            } catch (IOException e) {
+                // Cards keep their placeholder; the failure is retried later
+            }
+            Set<Runnable> waiters;
+            synchronized (this) {
+                waiters = pending.remove(key);
+                if (scaled != null) {
+                    put(key, scaled);
+                    failures.remove(key);
+                } else {
+                    failures.put(key, System.currentTimeMillis());
+                }
+            }
+            if (scaled != null && waiters != null) {
+                for (Runnable waiter : waiters) {
+                    SwingUtilities.invokeLater(waiter);
+                }
+            }
+        }
+
+        private void put(String key, BufferedImage image) {
+            memory.put(key, image);
+            memoryBytes += imageBytes(image);
+            Iterator<Map.Entry<String, BufferedImage>> eldest = memory.entrySet().iterator();
+            while (memoryBytes > maxMemoryBytes && eldest.hasNext()) {
+                Map.Entry<String, BufferedImage> entry = eldest.next();
+                if (entry.getKey().equals(key)) {
+                    break;
+                }
+                memoryBytes -= imageBytes(entry.getValue());
+                eldest.remove();
+            }
+        }
+
+        private static long imageBytes(BufferedImage image) {
+            return (long) image.getWidth() * image.getHeight() * 4;
+        }
+
+        // Raw icon bytes from the disk cache, or from the network on a miss
+        private byte[] readBytes(String url) throws IOException {
+            Path ref = diskDir.resolve(Digests.hex(Digests.newSha256().digest(url.getBytes(StandardCharsets.UTF_8))) + ".ref");
+            if (Files.isRegularFile(ref)) {
+                Path blob = diskDir.resolve(Files.readString(ref).trim() + ".img");
+                if (Files.isRegularFile(blob)) {
+                    return Files.readAllBytes(blob);
+                }
+            }
+
+            URLConnection connection = new URL(url).openConnection();
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout(READ_TIMEOUT_MS);
+            byte[] bytes;
+            try (InputStream in = connection.getInputStream()) {
+                bytes = in.readAllBytes();
+            }
+            try {
+                Files.createDirectories(diskDir);
+                String contentHash = Digests.hex(Digests.newSha256().digest(bytes));
+                Path blob = diskDir.resolve(contentHash + ".img");
+                if (!Files.exists(blob)) {
+                    Path temp = Files.createTempFile(diskDir, contentHash, ".tmp");
+                    Files.write(temp, bytes);
+                    Files.move(temp, blob, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+                Files.writeString(ref, contentHash);
+            } catch (IOException e) {
+                // Disk caching is best effort
+                e.printStackTrace();
+            }
+            return bytes;
+        }
+
+        // Fits the image into size x size, halving in steps so large sources stay smooth
+        static BufferedImage downscale(BufferedImage source, int size) {
+            double ratio = Math.min(1.0, Math.min((double) size / source.getWidth(), (double) size / source.getHeight()));
+            int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+            int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+            BufferedImage current = source;
+            int width = source.getWidth();
+            int height = source.getHeight();
+            do {
+                width = Math.max(targetWidth, width / 2);
+                height = Math.max(targetHeight, height / 2);
+                BufferedImage step = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+                Graphics2D g = step.createGraphics();
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, width, height, null);
+                g.dispose();
+                current = step;
+            } while (width != targetWidth || height != targetHeight);
+            return current;
+        }
+    }
+
+    // Paints an already-scaled image without ImageIcon's MediaTracker round trip
+    private static final class ImageViewIcon implements Icon {
+        private final BufferedImage image;
+
+        ImageViewIcon(BufferedImage image) {
+            this.image = image;
+        }
+
+        @Override
+        public void paintIcon(Component c, Graphics g, int x, int y) {
+            int offsetX = (ICON_SIZE - image.getWidth()) / 2;
+            int offsetY = (ICON_SIZE - image.getHeight()) / 2;
+            g.drawImage(image, x + offsetX, y + offsetY, null);
+        }
+
+        @Override
+        public int getIconWidth() {
+            return ICON_SIZE;
+        }
+
+        @Override
+        public int getIconHeight() {
+            return ICON_SIZE;
+        }
+    }
+
+    // Same footprint as a loaded icon so cards do not shift when it arrives
+    private static final class IconPlaceholder implements Icon {
+        static final IconPlaceholder INSTANCE = new IconPlaceholder();
+
+        @Override
+        public void paintIcon(Component c, Graphics g, int x, int y) {
+            Graphics2D g2 = (Graphics2D) g.create();
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2.setColor(new Color(235, 235, 240));
+            g2.fillRoundRect(x, y, ICON_SIZE, ICON_SIZE, 12, 12);
+            g2.dispose();
+        }
+
+        @Override
+        public int getIconWidth() {
+            return ICON_SIZE;
+        }
+
+        @Override
+        public int getIconHeight() {
+            return ICON_SIZE;
+        }
+    }
+
+    // Pre-rendered card shadows and button backgrounds. Each shape is drawn once into a
+    // small compatible image per style and device scale, then stretched to any size with
+    // 9-slice drawing: corners are copied as-is and the uniform edges and centre stretch.
+    private static final class PaintCache {
+        private static final int SHADOW_ARC = 20;
+        private static final int MAX_TILES = 64;
+        private static final Map<String, Image> tiles = new LinkedHashMap<String, Image>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Image> eldest) {
+                return size() > MAX_TILES;
+            }
+        };
+        private static long hits;
+        private static long misses;
+
+        private interface Painter {
+            void paint(Graphics2D g, int width, int height);
+        }
+
+        static void paintShadow(Graphics2D g, int x, int y, int width, int height, int shadowSize, float opacity,
+                                Color fill) {
+            int corner = shadowSize + SHADOW_ARC / 2 + 1;
+            String key = "shadow:" + shadowSize + ":" + opacity + ":" + fill.getRGB();
+            paintNineSlice(g, key, x, y, width, height, corner,
+                (tg, w, h) -> paintShadowDirect(tg, 0, 0, w, h, shadowSize, opacity, fill));
+        }
+
+        static void paintRoundRect(Graphics2D g, int x, int y, int width, int height, int arc, Color fill) {
+            int corner = (arc + 1) / 2 + 1;
+            String key = "round:" + arc + ":" + fill.getRGB();
+            paintNineSlice(g, key, x, y, width, height, corner,
+                (tg, w, h) -> paintRoundRectDirect(tg, 0, 0, w, h, arc, fill));
+        }
+
+        // The original per-paint drawing; used to render tiles and as the benchmark baseline
+        static void paintShadowDirect(Graphics2D g, int x, int y, int width, int height, int shadowSize, float opacity,
+                                      Color fill) {
+            Graphics2D g2 = (Graphics2D) g.create();
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            for (int i = 0; i < shadowSize; i++) {
+                float ringOpacity = opacity * (shadowSize - i) / shadowSize;
+                g2.setColor(new Color(0, 0, 0, (int)(ringOpacity * 255)));
+                g2.drawRoundRect(x + i, y + i, width - i * 2 - 1, height - i * 2 - 1, SHADOW_ARC, SHADOW_ARC);
+            }
+            g2.setColor(fill);
+            g2.fillRoundRect(x, y, width - 1, height - 1, SHADOW_ARC, SHADOW_ARC);
+            g2.dispose();
+        }
+
+        static void paintRoundRectDirect(Graphics2D g, int x, int y, int width, int height, int arc, Color fill) {
+            Graphics2D g2 = (Graphics2D) g.create();
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2.setPaint(fill);
+            g2.fillRoundRect(x, y, width, height, arc, arc);
+            g2.dispose();
+        }
+
+        static synchronized String stats() {
+            return "tiles=" + tiles.size() + " hits=" + hits + " misses=" + misses;
+        }
+
+        private static void paintNineSlice(Graphics2D g, String key, int x, int y, int width, int height, int corner,
+                                           Painter painter) {
+            AffineTransform transform = g.getTransform();
+            int tileUser = corner * 2 + 1;
+            boolean axisAligned = transform.getShearX() == 0 && transform.getShearY() == 0
+                && transform.getScaleX() > 0 && transform.getScaleY() > 0;
+            if (!axisAligned || width < tileUser || height < tileUser) {
+                // Too small to slice, or rotated; not worth caching
+                Graphics2D direct = (Graphics2D) g.create();
+                direct.translate(x, y);
+                painter.paint(direct, width, height);
+                direct.dispose();
+                return;
+            }
+
+            // The tile is the shape at its smallest sliceable size, two corners plus one
+            // stretchable unit, rendered at device resolution
+            double scale = bucketScale(transform.getScaleX());
+            int tilePx = (int) Math.round(tileUser * scale);
+            Image tile = tile(g, key + "@" + scale, tileUser, tilePx, painter);
+            int s1 = (int) Math.floor(corner * (tilePx / (double) tileUser));
+            int s2 = tilePx - s1;
+
+            // Slice in device space so every piece lands on whole pixels at fractional scales
+            double scaleX = transform.getScaleX();
+            double scaleY = transform.getScaleY();
+            int left = (int) Math.round(x * scaleX);
+            int top = (int) Math.round(y * scaleY);
+            int right = (int) Math.round((x + width) * scaleX);
+            int bottom = (int) Math.round((y + height) * scaleY);
+            int x1 = left + s1;
+            int x2 = right - (tilePx - s2);
+            int y1 = top + s1;
+            int y2 = bottom - (tilePx - s2);
+            Graphics2D dg = (Graphics2D) g.create();
+            dg.setTransform(AffineTransform.getTranslateInstance(transform.getTranslateX(), transform.getTranslateY()));
+            // Corners
+            dg.drawImage(tile, left, top, x1, y1, 0, 0, s1, s1, null);
+            dg.drawImage(tile, x2, top, right, y1, s2, 0, tilePx, s1, null);
+            dg.drawImage(tile, left, y2, x1, bottom, 0, s2, s1, tilePx, null);
+            dg.drawImage(tile, x2, y2, right, bottom, s2, s2, tilePx, tilePx, null);
+            // Edges
+            dg.drawImage(tile, x1, top, x2, y1, s1, 0, s2, s1, null);
+            dg.drawImage(tile, x1, y2, x2, bottom, s1, s2, s2, tilePx, null);
+            dg.drawImage(tile, left, y1, x1, y2, 0, s1, s1, s2, null);
+            dg.drawImage(tile, x2, y1, right, y2, s2, s1, tilePx, s2, null);
+            // Centre
+            dg.drawImage(tile, x1, y1, x2, y2, s1, s1, s2, s2, null);
+            dg.dispose();
+        }
+
+        private static synchronized Image tile(Graphics2D g, String key, int tileUser, int tilePx, Painter painter) {
+            Image tile = tiles.get(key);
+            if (tile != null) {
+                hits++;
+                return tile;
+            }
+            misses++;
+            // Compatible translucent images are managed, so Java2D can keep them in video memory
+            GraphicsConfiguration config = g.getDeviceConfiguration();
+            BufferedImage image = config != null
+                ? config.createCompatibleImage(tilePx, tilePx, Transparency.TRANSLUCENT)
+                : new BufferedImage(tilePx, tilePx, BufferedImage.TYPE_INT_ARGB_PRE);
+            Graphics2D tg = image.createGraphics();
+            tg.scale(tilePx / (double) tileUser, tilePx / (double) tileUser);
+            painter.paint(tg, tileUser, tileUser);
+            tg.dispose();
+            tiles.put(key, image);
+            return image;
+        }
+
+        // Bucket fractional scales so zooming does not fill the cache with near-duplicates
+        private static double bucketScale(double scale) {
+            return Math.max(0.25, Math.round(scale * 4) / 4.0);
+        }
+    }
+
+    // Per-app and overall progress of an UpdateJob. The dialog polls the job, so however fast bytes
+    // arrive it repaints a few times a second.
+    private class UpdateProgressDialog extends JDialog {
+        private static final int POLL_MS = 100;
+
+        UpdateProgressDialog(String title, UpdateJob job, Runnable onFinished) {
+            super(DJA.this, title, false);
+            setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+
+            JPanel content = new JPanel(new BorderLayout(0, 15));
+            content.setBorder(BorderFactory.createEmptyBorder(20, 25, 20, 25));
+            content.setBackground(Color.WHITE);
+
+            JLabel summary = new JLabel(" ");
+            summary.setFont(normalFont);
+            summary.setForeground(new Color(100, 100, 100));
+
+            JProgressBar overall = new JProgressBar(0, 1000);
+            overall.setStringPainted(true);
+            overall.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+            overall.setForeground(new Color(46, 204, 113));
+            overall.setBackground(new Color(240, 240, 240));
+            overall.setBorderPainted(false);
+
+            List<UpdateJob.Item> items = job.items();
+            AbstractTableModel rows = new AbstractTableModel() {
+                private final String[] columns = {"App", "Version", "Status"};
+
+                @Override
+                public int getRowCount() {
+                    return items.size();
+                }
+
+                @Override
+                public int getColumnCount() {
+                    return columns.length;
+                }
+
+                @Override
+                public String getColumnName(int column) {
+                    return columns[column];
+                }
+
+                @Override
+                public Object getValueAt(int row, int column) {
+                    UpdateJob.Item item = items.get(row);
+                    switch (column) {
+                        case 0:
+                            return item.app.displayName();
+                        case 1:
+                            return item.fromVersion.isEmpty() ? item.app.version
+                                : item.fromVersion + " → " + item.app.version;
+                        default:
+                            return status(item);
+                    }
+                }
+            };
+            JTable table = new JTable(rows);
+            table.setFont(normalFont);
+            table.setRowHeight(26);
+            table.setFillsViewportHeight(true);
+            table.setFocusable(false);
+            table.setRowSelectionAllowed(false);
+            JScrollPane tableScroll = new JScrollPane(table);
+            tableScroll.getViewport().setBackground(Color.WHITE);
+
+            JButton action = createStyledButton("Cancel");
+            action.addActionListener(e -> {
+                if (job.isDone()) {
+                    dispose();
+                } else {
+                    job.cancel();
+                    action.setEnabled(false);
+                }
+            });
+            addWindowListener(new java.awt.event.WindowAdapter() {
+                @Override
+                public void windowClosing(java.awt.event.WindowEvent e) {
+                    action.doClick();
+                }
+            });
+
+            JPanel top = new JPanel(new BorderLayout(0, 8));
+            top.setBackground(Color.WHITE);
+            top.add(summary, BorderLayout.NORTH);
+            top.add(overall, BorderLayout.CENTER);
+            JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 0, 0));
+            buttons.setBackground(Color.WHITE);
+            buttons.add(action);
+            content.add(top, BorderLayout.NORTH);
+            content.add(tableScroll, BorderLayout.CENTER);
+            content.add(buttons, BorderLayout.SOUTH);
+            setContentPane(content);
+            setSize(600, Math.min(520, 200 + 26 * items.size()));
+            setLocationRelativeTo(DJA.this);
+
+            javax.swing.Timer poll = new javax.swing.Timer(POLL_MS, null);
+            poll.addActionListener(e -> {
+                if (!items.isEmpty()) {
+                    rows.fireTableRowsUpdated(0, items.size() - 1);
+                }
+                overall.setValue((int) Math.round(job.progress() * 1000));
+                overall.setString(Math.round(job.progress() * 100) + "%");
+                if (!job.isDone()) {
+                    summary.setText(items.size() - job.count(UpdateJob.State.QUEUED) - job.count(UpdateJob.State.DOWNLOADING)
+                        - job.count(UpdateJob.State.INSTALLING) + " of " + items.size() + " finished");
+                    return;
+                }
+                poll.stop();
+                summary.setText(outcome(job));
+                action.setText("Close");
+                action.setEnabled(true);
+                onFinished.run();
+            });
+            poll.start();
+        }
+
+        private String status(UpdateJob.Item item) {
+            switch (item.state) {
+                case QUEUED:
+                    return "Waiting";
+                case DOWNLOADING:
+                    long length = item.length;
+                    return length > 0
+                        ? String.format("Downloading %.1f of %.1f MB", item.received / 1048576.0, length / 1048576.0)
+                        : String.format("Downloading %.1f MB", item.received / 1048576.0);
+                case INSTALLING:
+                    return "Installing";
+                case UPDATED:
+                    return item.fromVersion.isEmpty() ? "Installed" : "Updated";
+                case FAILED:
+                    return "Failed: " + item.error;
+                default:
+                    return "Cancelled";
+            }
+        }
+
+        private String outcome(UpdateJob job) {
+            if (job.items().size() == 1) {
+                return status(job.items().get(0));
+            }
+            List<String> parts = new ArrayList<>();
+            int updated = job.count(UpdateJob.State.UPDATED);
+            int failed = job.count(UpdateJob.State.FAILED);
+            int cancelled = job.count(UpdateJob.State.CANCELLED);
+            if (updated > 0) {
+                parts.add(updated + " updated");
+            }
+            if (failed > 0) {
+                parts.add(failed + " failed and left as before");
+            }
+            if (cancelled > 0) {
+                parts.add(cancelled + " cancelled");
+            }
+            return String.join(", ", parts);
+        }
+    }
+
+    // Recent timings from Metrics as a table that refreshes while open, and the last EDT stalls with
+    // the stack each was caught in. Copy puts the plain-text report on the clipboard for a bug report.
+    private class DiagnosticsDialog extends JDialog {
+        private static final int REFRESH_MS = 1000;
+        private List<Metrics.Summary> summaries = Metrics.summaries();
+
+        DiagnosticsDialog() {
+            super(DJA.this, "Diagnostics", false);
+            setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+
+            JPanel content = new JPanel(new BorderLayout(0, 15));
+            content.setBorder(BorderFactory.createEmptyBorder(20, 25, 20, 25));
+            content.setBackground(Color.WHITE);
+
+            AbstractTableModel rows = new AbstractTableModel() {
+                private final String[] columns = {"Operation", "Count", "Mean ms", "p50 ms", "p90 ms", "p99 ms",
+                    "Max ms"};
+
+                @Override
+                public int getRowCount() {
+                    return summaries.size();
+                }
+
+                @Override
+                public int getColumnCount() {
+                    return columns.length;
+                }
+
+                @Override
+                public String getColumnName(int column) {
+                    return columns[column];
+                }
+
+                @Override
+                public Object getValueAt(int row, int column) {
+                    Metrics.Summary summary = summaries.get(row);
+                    switch (column) {
+                        case 0:
+                            return summary.name;
+                        case 1:
+                            return summary.count;
+                        case 2:
+                            return millis(summary.meanNanos);
+                        case 3:
+                            return millis(summary.p50Nanos);
+                        case 4:
+                            return millis(summary.p90Nanos);
+                        case 5:
+                            return millis(summary.p99Nanos);
+                        default:
+                            return millis(summary.maxNanos);
+                    }
+                }
+            };
+            JTable table = new JTable(rows);
+            table.setFont(normalFont);
+            table.setRowHeight(24);
+            table.setFillsViewportHeight(true);
+            table.getColumnModel().getColumn(0).setPreferredWidth(180);
+            JScrollPane tableScroll = new JScrollPane(table);
+            tableScroll.getViewport().setBackground(Color.WHITE);
+
+            JTextArea stalls = new JTextArea(8, 0);
+            stalls.setEditable(false);
+            stalls.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+            JScrollPane stallScroll = new JScrollPane(stalls);
+            stallScroll.setBorder(BorderFactory.createTitledBorder("Recent EDT stalls"));
+
+            JButton copy = createStyledButton("Copy report");
+            copy.addActionListener(e -> Toolkit.getDefaultToolkit().getSystemClipboard()
+                .setContents(new java.awt.datatransfer.StringSelection(Metrics.report()), null));
+            JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 0, 0));
+            buttons.setBackground(Color.WHITE);
+            buttons.add(copy);
+
+            JSplitPane split = new JSplitPane(JSplitPane.VERTICAL_SPLIT, tableScroll, stallScroll);
+            split.setResizeWeight(0.65);
+            split.setBorder(null);
+            content.add(split, BorderLayout.CENTER);
+            content.add(buttons, BorderLayout.SOUTH);
+            setContentPane(content);
+            setSize(760, 560);
+            setLocationRelativeTo(DJA.this);
+
+            Runnable refresh = () -> {
+                summaries = Metrics.summaries();
+                rows.fireTableDataChanged();
+                StringBuilder text = new StringBuilder();
+                List<Metrics.Stall> recent = Metrics.stalls();
+                for (int i = recent.size() - 1; i >= 0; i--) {
+                    Metrics.Stall stall = recent.get(i);
+                    text.append(String.format("%s  %.0f ms  %s%n%s%n", stall.when, stall.nanos / 1e6, stall.event,
+                        stall.stack));
+                }
+                stalls.setText(text.length() == 0 ? "None" : text.toString());
+                stalls.setCaretPosition(0);
+            };
+            refresh.run();
+            javax.swing.Timer poll = new javax.swing.Timer(REFRESH_MS, e -> refresh.run());
+            poll.start();
+            addWindowListener(new java.awt.event.WindowAdapter() {
+                @Override
+                public void windowClosed(java.awt.event.WindowEvent e) {
+                    poll.stop();
+                }
+            });
+        }
+
+        private String millis(long nanos) {
+            return String.format("%.2f", nanos / 1e6);
+        }
+    }
+
+    // Custom gradient button class
+    private static final int BUTTON_ARC = 25;
+
+    private class JGradientButton extends JButton {
+        public JGradientButton(String text) {
+            super(text);
+            setContentAreaFilled(false);
+            setFocusPainted(false);
+            setBorderPainted(false);
+            setForeground(Color.WHITE);
+            setCursor(new Cursor(Cursor.HAND_CURSOR));
+            setPreferredSize(new Dimension(getPreferredSize().width, 45));
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            Graphics2D g2 = (Graphics2D) g.create();
+            
+            Color fill;
+            if (getModel().isPressed()) {
+                fill = buttonColor.darker();
+            } else if (getModel().isRollover()) {
+                fill = accentColor;
+            } else {
+                fill = buttonColor;
+            }
+            
+            PaintCache.paintRoundRect(g2, 0, 0, getWidth(), getHeight(), BUTTON_ARC, fill);
+            super.paintComponent(g2);
+            g2.dispose();
+        }
+    }
+
+    // Custom shadow border class
+    private class ShadowBorder extends AbstractBorder {
+        private final int shadowSize;
+        private final float shadowOpacity;
+
+        public ShadowBorder(int size, float opacity) {
+            this.shadowSize = size;
+            this.shadowOpacity = opacity;
+        }
+
+        @Override
+        public void paintBorder(Component c, Graphics g, int x, int y, int width, int height) {
+            Graphics2D g2 = (Graphics2D) g.create();
+            PaintCache.paintShadow(g2, x, y, width, height, shadowSize, shadowOpacity, cardColor);
             g2.dispose();
         }
 
@@ -548,6 +6824,9 @@ public class DJA extends JFrame {
     }
 
     public static void main(String[] args) {
+        StartupTimer.mark("main");
+        Settings.load();
+        StallDetectingEventQueue.install();
         SwingUtilities.invokeLater(() -> new DJA());
     }
 }
@@ -3,12 +3,22 @@ import java.awt.*;
 import java.io.*;
 import java.net.*;
 import java.nio.file.*;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
 
 public class Installer extends JFrame {
     private JProgressBar progressBar;
     private JLabel statusLabel;
     private static final String JSON_LIB_URL = "https://repo1.maven.org/maven2/org/json/json/20231013/json-20231013.jar";
     private static final String DASHBOARD_URL = "https://raw.githubusercontent.com/DRAGEno01/DRAGE-Java-Apps/main/code/DJA.java";
+    private static final int CONNECT_TIMEOUT_MS = 10000;
+    private static final int READ_TIMEOUT_MS = 30000;
 
     public Installer() {
         setTitle("DRAGE Java Apps Installer");
@@ -73,28 +83,12 @@ public class Installer extends JFrame {
             @Override
             protected Void doInBackground() throws Exception {
                 try {
-                    // Create directories
-                    updateStatus("Creating directories...", 10);
-                    createDirectories();
-
-                    // Download JSON library
-                    updateStatus("Downloading JSON library...", 30);
-                    downloadFile(JSON_LIB_URL, "lib/json.jar");
-
-                    // Download and compile dashboard
-                    updateStatus("Downloading Dashboard...", 60);
-                    downloadFile(DASHBOARD_URL, "src/DJA.java");
-
-                    // Compile
-                    updateStatus("Compiling...", 80);
-                    compile();
-
-                    // Create shortcut and cleanup
-                    updateStatus("Creating shortcut...", 90);
-                    createShortcut();
-                    cleanup();
-
-                    updateStatus("Installation complete!", 100);
+                    File launcher = install(Installer.this::updateStatus);
+                    JOptionPane.showMessageDialog(null, 
+                        "Launcher created: " + launcher.getAbsolutePath() + "\n" +
+                        "You can move it to your desktop or create a shortcut to it.",
+                        "Installation Complete",
+                        JOptionPane.INFORMATION_MESSAGE);
                     JOptionPane.showMessageDialog(null, "Installation completed successfully!");
                     System.exit(0);
                 } catch (Exception e) {
@@ -107,6 +101,180 @@ public class Installer extends JFrame {
         worker.execute();
     }
 
+    // The installation steps shared by the window and --headless; returns the dashboard launcher.
+    // Both downloads run at once, compilation starts when both have landed, and the launchers are
+    // written meanwhile. The first failure cancels everything still running and removes the launchers.
+    private static File install(BiConsumer<String, Integer> status) throws Exception {
+        createDirectories();
+        Pipeline pipeline = new Pipeline(status);
+        ExecutorService pool = Executors.newFixedThreadPool(3, task -> {
+            Thread thread = new Thread(task, "installer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            CompletableFuture<Void> library = pipeline.run(pool, () -> {
+                downloadFile(JSON_LIB_URL, "lib/json.jar", pipeline.library, pipeline);
+                return null;
+            });
+            CompletableFuture<Void> dashboard = pipeline.run(pool, () -> {
+                downloadFile(DASHBOARD_URL, "src/DJA.java", pipeline.dashboard, pipeline);
+                return null;
+            });
+            CompletableFuture<Void> compiled = CompletableFuture.allOf(library, dashboard)
+                .thenCompose(done -> pipeline.run(pool, () -> {
+                    compile(pipeline);
+                    return null;
+                }));
+            CompletableFuture<File> launcher = pipeline.run(pool, () -> {
+                File file = createShortcut();
+                pipeline.launchersWritten();
+                return file;
+            });
+            try {
+                CompletableFuture.allOf(compiled, launcher).join();
+            } catch (CompletionException | CancellationException e) {
+                // Wait for the cancelled steps to stop before cleaning up after them
+                CompletableFuture.allOf(library, dashboard, compiled, launcher).exceptionally(t -> null).join();
+                if (launcher.isDone() && !launcher.isCompletedExceptionally()) {
+                    deleteLaunchers();
+                }
+                throw pipeline.failure();
+            }
+            cleanup();
+            status.accept("Installation complete!", 100);
+            return launcher.join();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // Tracks the concurrent steps: byte counts of the downloads and how far compilation got drive one
+    // progress figure (downloads 60%, compilation 35%, launchers 5%), and the first step to fail
+    // cancels the rest. Steps poll cancelled() between reads and between compiler phases.
+    private static final class Pipeline {
+        // Weight given to a download whose server sent no length, until it is known to be larger
+        private static final long UNKNOWN_LENGTH = 128 * 1024;
+
+        static final class Transfer {
+            volatile long received;
+            volatile long length = -1;
+            volatile boolean done;
+            // Closed on cancellation, so a read blocked on a stalled connection returns at once
+            volatile Closeable stream;
+
+            long weight() {
+                return length > 0 ? length : Math.max(received, UNKNOWN_LENGTH);
+            }
+        }
+
+        final Transfer library = new Transfer();
+        final Transfer dashboard = new Transfer();
+        private final BiConsumer<String, Integer> status;
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private volatile double compiled;
+        private volatile String compileStage = "";
+        private volatile boolean launchers;
+        private String lastText;
+        private int lastPercent = -1;
+        private volatile Process javac;
+
+        Pipeline(BiConsumer<String, Integer> status) {
+            this.status = status;
+        }
+
+        <T> CompletableFuture<T> run(ExecutorService pool, Callable<T> step) {
+            return CompletableFuture.supplyAsync(() -> {
+                if (cancelled()) {
+                    throw new CancellationException();
+                }
+                try {
+                    return step.call();
+                } catch (Exception e) {
+                    fail(e);
+                    throw new CompletionException(e);
+                }
+            }, pool);
+        }
+
+        boolean cancelled() {
+            return failure.get() != null;
+        }
+
+        // The first failure wins; later ones are usually just the cancellation it caused
+        void fail(Throwable cause) {
+            if (!failure.compareAndSet(null, cause)) {
+                return;
+            }
+            for (Transfer transfer : List.of(library, dashboard)) {
+                Closeable stream = transfer.stream;
+                if (stream != null && !transfer.done) {
+                    try {
+                        stream.close();
+                    } catch (IOException e) {
+                        // Closing only unblocks the read; its error is already being reported
+                    }
+                }
+            }
+            Process process = javac;
+            if (process != null) {
+                process.destroyForcibly();
+            }
+        }
+
+        Exception failure() {
+            Throwable cause = failure.get();
+            return cause instanceof Exception ? (Exception) cause : new Exception(cause);
+        }
+
+        void javac(Process process) {
+            javac = process;
+            if (cancelled()) {
+                process.destroyForcibly();
+            }
+        }
+
+        void compiled(double fraction, String stage) {
+            compiled = fraction;
+            compileStage = stage;
+            publish();
+        }
+
+        void launchersWritten() {
+            launchers = true;
+            publish();
+        }
+
+        synchronized void publish() {
+            if (cancelled()) {
+                return;
+            }
+            long received = library.received + dashboard.received;
+            double downloaded = 0;
+            long weights = library.weight() + dashboard.weight();
+            for (Transfer transfer : List.of(library, dashboard)) {
+                downloaded += transfer.done ? transfer.weight() : Math.min(transfer.received, transfer.weight());
+            }
+            double fraction = 0.60 * downloaded / weights + 0.35 * compiled + (launchers ? 0.05 : 0);
+            String text;
+            if (!library.done || !dashboard.done) {
+                long total = library.length > 0 && dashboard.length > 0 ? library.length + dashboard.length : -1;
+                text = total > 0 ? String.format("Downloading... %d of %d KB", received / 1024, total / 1024)
+                    : String.format("Downloading... %d KB", received / 1024);
+            } else if (compiled < 1) {
+                text = "Compiling... " + compileStage;
+            } else {
+                text = "Creating shortcut...";
+            }
+            int percent = (int) Math.min(99, Math.round(fraction * 100));
+            if (percent != lastPercent || !text.equals(lastText)) {
+                lastPercent = percent;
+                lastText = text;
+                status.accept(text, percent);
+            }
+        }
+    }
+
     private void updateStatus(String status, int progress) {
         SwingUtilities.invokeLater(() -> {
             statusLabel.setText(status);
@@ -116,78 +284,221 @@ public class Installer extends JFrame {
         });
     }
 
-    private void createDirectories() {
+    private static void createDirectories() {
         new File("lib").mkdirs();
         new File("src").mkdirs();
     }
 
-    private void downloadFile(String url, String saveAs) throws Exception {
-        try (BufferedInputStream in = new BufferedInputStream(new URL(url).openStream());
+    private static void downloadFile(String url, String saveAs, Pipeline.Transfer transfer, Pipeline pipeline)
+            throws Exception {
+        URLConnection connection = new URL(url).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        connection.setReadTimeout(READ_TIMEOUT_MS);
+        try (InputStream in = connection.getInputStream();
              FileOutputStream out = new FileOutputStream(saveAs)) {
-            byte[] buffer = new byte[1024];
+            transfer.stream = in;
+            transfer.length = connection.getContentLengthLong();
+            byte[] buffer = new byte[64 * 1024];
             int count;
-            while ((count = in.read(buffer, 0, 1024)) != -1) {
+            while ((count = in.read(buffer)) != -1) {
+                if (pipeline.cancelled()) {
+                    throw new CancellationException();
+                }
                 out.write(buffer, 0, count);
+                transfer.received += count;
+                pipeline.publish();
             }
         }
+        transfer.done = true;
+        pipeline.publish();
     }
 
-    private void compile() throws Exception {
-        ProcessBuilder pb = new ProcessBuilder(
-            "javac", 
-            "-cp", "lib/json.jar", 
-            "src/DJA.java"
-        );
+    private static void compile(Pipeline pipeline) throws Exception {
+        String[] args = {"-encoding", "UTF-8", "-cp", "lib/json.jar", "src/DJA.java"};
+
+        // Compile in this JVM when a system compiler is available; spawning javac costs a second JVM startup
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler != null) {
+            StringWriter errors = new StringWriter();
+            StandardJavaFileManager files = compiler.getStandardFileManager(null, null, null);
+            JavaCompiler.CompilationTask task = compiler.getTask(errors, files, null,
+                Arrays.asList(args).subList(0, args.length - 1), null, files.getJavaFileObjects(args[args.length - 1]));
+            if (task instanceof com.sun.source.util.JavacTask) {
+                ((com.sun.source.util.JavacTask) task).addTaskListener(new CompileProgress(pipeline));
+            }
+            boolean success;
+            try {
+                success = task.call();
+            } finally {
+                files.close();
+            }
+            if (!success) {
+                throw new Exception("Compilation failed:\n" + errors);
+            }
+            pipeline.compiled(1, "");
+            return;
+        }
+
+        String[] command = new String[args.length + 1];
+        command[0] = "javac";
+        System.arraycopy(args, 0, command, 1, args.length);
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.redirectErrorStream(true);
         Process p = pb.start();
-        p.waitFor();
+        pipeline.javac(p);
+        String output = new String(p.getInputStream().readAllBytes());
+        if (p.waitFor() != 0) {
+            throw new Exception(pipeline.cancelled() ? "Compilation cancelled" : "Compilation failed:\n" + output);
+        }
+        pipeline.compiled(1, "");
     }
 
-    private void cleanup() {
+    // javac reports one event per phase for the source file and one per class file written. Parsing
+    // and entering symbols take about a third of the time, analysis most of the rest; class files
+    // are counted against the classes declared in the parsed source.
+    private static final class CompileProgress implements com.sun.source.util.TaskListener {
+        private final Pipeline pipeline;
+        private int classes = 1;
+        private int generated;
+
+        CompileProgress(Pipeline pipeline) {
+            this.pipeline = pipeline;
+        }
+
+        @Override
+        public void started(com.sun.source.util.TaskEvent e) {
+            // Throwing out of a listener aborts the compilation
+            if (pipeline.cancelled()) {
+                throw new CancellationException();
+            }
+            if (e.getKind() == com.sun.source.util.TaskEvent.Kind.ANALYZE) {
+                pipeline.compiled(0.30, "checking types");
+            }
+        }
+
+        @Override
+        public void finished(com.sun.source.util.TaskEvent e) {
+            switch (e.getKind()) {
+                case PARSE:
+                    classes = Math.max(1, new com.sun.source.util.TreeScanner<Integer, Void>() {
+                        @Override
+                        public Integer visitClass(com.sun.source.tree.ClassTree node, Void unused) {
+                            Integer nested = super.visitClass(node, unused);
+                            return 1 + (nested != null ? nested : 0);
+                        }
+
+                        @Override
+                        public Integer reduce(Integer a, Integer b) {
+                            return (a != null ? a : 0) + (b != null ? b : 0);
+                        }
+                    }.scan(e.getCompilationUnit(), null));
+                    pipeline.compiled(0.10, "reading source");
+                    break;
+                case ANALYZE:
+                    pipeline.compiled(0.80, "writing classes");
+                    break;
+                case GENERATE:
+                    generated++;
+                    pipeline.compiled(0.80 + 0.20 * Math.min(1, (double) generated / classes),
+                        "writing classes (" + generated + " of " + classes + ")");
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    // A failed install must not leave launchers pointing at a dashboard that was never compiled
+    private static void deleteLaunchers() {
+        for (String name : List.of("DRAGE Java Apps.bat", "dja.bat", "DRAGE Java Apps", "dja")) {
+            new File(name).delete();
+        }
+    }
+
+    private static void cleanup() {
         // Delete the source file after compilation
         new File("src/DJA.java").delete();
     }
 
-    private void createShortcut() throws Exception {
+    // Writes the dashboard launcher, and next to it "dja" (dja.bat on Windows) for the command-line
+    // front end: dja install <app>..., dja update --all, and so on, without opening a window
+    private static File createShortcut() throws Exception {
         String os = System.getProperty("os.name").toLowerCase();
         String currentDir = new File(".").getAbsolutePath().replace("\\.", "");
         
         if (os.contains("windows")) {
-            // Create Windows .bat file in current directory
+            // Create Windows .bat file in current directory. The first run records the classes the
+            // dashboard loads and turns them into a CDS archive once it exits; later runs map that archive.
             String batchContent = "@echo off\n" +
                 "cd \"" + currentDir + "\"\n" +
-                "java -cp \"src;lib/json.jar\" DJA";
+                "if exist cache\\dja.jsa (\n" +
+                "    java -XX:SharedArchiveFile=cache\\dja.jsa -Xshare:auto -cp \"lib/json.jar;src\" DJA\n" +
+                ") else (\n" +
+                "    if not exist cache mkdir cache\n" +
+                "    java -XX:DumpLoadedClassList=cache\\dja.classlist -cp \"lib/json.jar;src\" DJA\n" +
+                "    java -Xshare:dump -XX:SharedClassListFile=cache\\dja.classlist" +
+                " -XX:SharedArchiveFile=cache\\dja.jsa -cp lib/json.jar > nul 2>&1\n" +
+                ")\n";
             
             File batchFile = new File("DRAGE Java Apps.bat");
             try (FileOutputStream fos = new FileOutputStream(batchFile)) {
                 fos.write(batchContent.getBytes());
             }
-            
-            JOptionPane.showMessageDialog(null, 
-                "Launcher created: " + batchFile.getAbsolutePath() + "\n" +
-                "You can move it to your desktop or create a shortcut to it.",
-                "Installation Complete",
-                JOptionPane.INFORMATION_MESSAGE);
+
+            String cliContent = "@echo off\n" +
+                "set \"DJA_CALLER_DIR=%CD%\"\n" +
+                "cd /d \"" + currentDir + "\"\n" +
+                "java -cp \"lib/json.jar;src\" DJA$Cli %*\n";
+            try (FileOutputStream fos = new FileOutputStream("dja.bat")) {
+                fos.write(cliContent.getBytes());
+            }
+            return batchFile;
         } else {
-            // Create Unix/Linux/Mac launcher script
+            // Create Unix/Linux/Mac launcher script. Same archive scheme as on Windows; it is also
+            // retrained after a dashboard update recompiles src/.
             String shellContent = "#!/bin/bash\n" +
                 "cd \"" + currentDir + "\"\n" +
-                "java -cp \"src:lib/json.jar\" DJA";
+                "JSA=cache/dja.jsa\n" +
+                "if [ -f \"$JSA\" ] && [ ! src/DJA.class -nt \"$JSA\" ]; then\n" +
+                "    exec java -XX:SharedArchiveFile=\"$JSA\" -Xshare:auto -cp \"lib/json.jar:src\" DJA\n" +
+                "fi\n" +
+                "mkdir -p cache\n" +
+                "java -XX:DumpLoadedClassList=cache/dja.classlist -cp \"lib/json.jar:src\" DJA\n" +
+                "java -Xshare:dump -XX:SharedClassListFile=cache/dja.classlist" +
+                " -XX:SharedArchiveFile=\"$JSA\" -cp lib/json.jar > /dev/null 2>&1\n";
             
             File shellFile = new File("DRAGE Java Apps");
             try (FileOutputStream fos = new FileOutputStream(shellFile)) {
                 fos.write(shellContent.getBytes());
                 shellFile.setExecutable(true);
             }
-            
-            JOptionPane.showMessageDialog(null, 
-                "Launcher created: " + shellFile.getAbsolutePath() + "\n" +
-                "You can move it to your desktop or create a shortcut to it.",
-                "Installation Complete",
-                JOptionPane.INFORMATION_MESSAGE);
+
+            // Runs from the install directory; DJA_CALLER_DIR keeps relative manifest paths working
+            String cliContent = "#!/bin/bash\n" +
+                "export DJA_CALLER_DIR=\"$PWD\"\n" +
+                "cd \"" + currentDir + "\" || exit 2\n" +
+                "exec java -cp \"lib/json.jar:src\" 'DJA$Cli' \"$@\"\n";
+            File cliFile = new File("dja");
+            try (FileOutputStream fos = new FileOutputStream(cliFile)) {
+                fos.write(cliContent.getBytes());
+                cliFile.setExecutable(true);
+            }
+            return shellFile;
         }
     }
 
+    // With --headless, or where there is no display, installs with progress on stdout instead of a window
     public static void main(String[] args) {
+        if (Arrays.asList(args).contains("--headless") || GraphicsEnvironment.isHeadless()) {
+            try {
+                File launcher = install((status, progress) -> System.out.println(progress + "% " + status));
+                System.out.println("Launcher created: " + launcher.getAbsolutePath());
+            } catch (Exception e) {
+                e.printStackTrace();
+                System.exit(1);
+            }
+            return;
+        }
         SwingUtilities.invokeLater(() -> new Installer());
     }
 }